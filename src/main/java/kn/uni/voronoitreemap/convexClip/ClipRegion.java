@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.convexClip;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Rectangle2D;
+
+/**
+ * a clip polygon together with the data that is precomputed once, so that clipping the cells and testing points
+ * is cheap while the Voronoi core iterates.
+ * The region is a snapshot: if the polygon is modified afterwards, a new region must be created.
+ */
+public abstract class ClipRegion {
+	protected final PolygonSimple polygon;
+	protected final double minX;
+	protected final double minY;
+	protected final double maxX;
+	protected final double maxY;
+	protected final double area;
+
+	protected ClipRegion(PolygonSimple polygon) {
+		this.polygon = polygon;
+		area = Math.abs(polygon.getSignedArea());
+		var bounds = polygon.getBounds2D();
+		minX = bounds.getMinX();
+		minY = bounds.getMinY();
+		maxX = bounds.getMaxX();
+		maxY = bounds.getMaxY();
+	}
+
+	/**
+	 * creates the region for the given polygon, which is convex, or a simple polygon, possibly with holes that are
+	 * connected to the outer boundary by bridge edges
+	 *
+	 * @param polygon the clip polygon
+	 * @return the clip region
+	 */
+	public static ClipRegion create(PolygonSimple polygon) {
+		if (polygon.isConvex())
+			return new ConvexClipRegion(polygon);
+		else
+			return new PolygonClipRegion(polygon);
+	}
+
+	/**
+	 * tests whether the given point lies in the region
+	 */
+	public abstract boolean contains(double x, double y);
+
+	/**
+	 * clips a convex polygon with this region
+	 *
+	 * @param x       x-coordinates of the convex polygon
+	 * @param y       y-coordinates of the convex polygon
+	 * @param n       number of points
+	 * @param clipper scratch buffers used for clipping
+	 * @return the clipped polygon, or null, if it is empty
+	 */
+	public abstract PolygonSimple clip(double[] x, double[] y, int n, ConvexClipper clipper);
+
+	/**
+	 * is this region convex?
+	 */
+	public abstract boolean isConvex();
+
+	public PolygonSimple getPolygon() {
+		return polygon;
+	}
+
+	public double getArea() {
+		return area;
+	}
+
+	public Rectangle2D getBounds() {
+		return new Rectangle2D(minX, minY, maxX - minX, maxY - minY);
+	}
+
+	public double getMinX() {
+		return minX;
+	}
+
+	public double getMinY() {
+		return minY;
+	}
+
+	public double getMaxX() {
+		return maxX;
+	}
+
+	public double getMaxY() {
+		return maxY;
+	}
+}
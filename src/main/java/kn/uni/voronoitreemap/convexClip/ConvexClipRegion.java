@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.convexClip;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+import java.util.Arrays;
+
+/**
+ * a convex clip polygon with precomputed edge half planes, orientation, bounds and area.
+ * The clip polygon of a node does not change while the Voronoi core iterates, so all of this is computed once
+ * and then used for clipping the cells, for containment tests and for the area error.
+ */
+public class ConvexClipRegion extends ClipRegion {
+	private final int length;
+	private final double[] x;
+	private final double[] y;
+	/**
+	 * half planes a*x+b*y+c>=0, one per edge, with (a,b) the unit inner normal
+	 */
+	private final double[] a;
+	private final double[] b;
+	private final double[] c;
+	private final boolean counterClockwise;
+
+	/**
+	 * constructor
+	 *
+	 * @param polygon a convex polygon
+	 */
+	public ConvexClipRegion(PolygonSimple polygon) {
+		super(polygon);
+		length = polygon.getNumPoints();
+		x = Arrays.copyOf(polygon.getXPoints(), length);
+		y = Arrays.copyOf(polygon.getYPoints(), length);
+
+		counterClockwise = (polygon.getSignedArea() > 0);
+
+		a = new double[length];
+		b = new double[length];
+		c = new double[length];
+		var orientation = (counterClockwise ? 1.0 : -1.0);
+		for (int i = 0, j = length - 1; i < length; j = i++) {
+			var dx = x[i] - x[j];
+			var dy = y[i] - y[j];
+			var norm = Math.sqrt(dx * dx + dy * dy);
+			if (norm > 0) {
+				dx *= orientation / norm;
+				dy *= orientation / norm;
+			}
+			a[i] = -dy;
+			b[i] = dx;
+			c[i] = dy * x[j] - dx * y[j];
+		}
+	}
+
+	/**
+	 * tests whether the given point lies in the region, in time logarithmic in the number of edges, using the wedge
+	 * test of {@link PolygonSimple#convexContains(double[], double[], int, int, double, double)}
+	 */
+	@Override
+	public boolean contains(double px, double py) {
+		if (px < minX || px > maxX || py < minY || py > maxY || length < 3)
+			return false;
+		return PolygonSimple.convexContains(x, y, length, counterClockwise ? 1 : -1, px, py);
+	}
+
+	@Override
+	public PolygonSimple clip(double[] x, double[] y, int n, ConvexClipper clipper) {
+		clipper.clip(a, b, c, length, x, y, n);
+		var result = clipper.getPolygon();
+		if (result != null)
+			result.setConvex(true);
+		return result;
+	}
+
+	@Override
+	public boolean isConvex() {
+		return true;
+	}
+
+	public boolean isCounterClockwise() {
+		return counterClockwise;
+	}
+}
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.convexClip;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+import java.util.Arrays;
+
+/**
+ * clips a convex polygon against a convex clip polygon, or against a precomputed set of half planes,
+ * working directly on coordinate arrays (Sutherland-Hodgman, one pass per edge of the clip polygon).
+ * <p>
+ * The orientation of the clip polygon is given by the caller, so it is not re-tested on each call.
+ * All intermediate points are kept in scratch buffers that are reused between calls, so clipping does not allocate
+ * once the buffers have grown to the size needed. An instance must not be shared between threads.
+ */
+public class ConvexClipper {
+	/**
+	 * consecutive output points closer than this are merged
+	 */
+	private static final double epsilon = 1E-10;
+
+	private double[] xIn = new double[32];
+	private double[] yIn = new double[32];
+	private double[] xOut = new double[32];
+	private double[] yOut = new double[32];
+	private double[] side = new double[32];
+	private int length;
+	private PolygonClipRegion.Scratch regionScratch;
+
+	/**
+	 * clips the polygon (x,y) against the convex clip polygon (clipX,clipY)
+	 *
+	 * @param clipX                x-coordinates of the convex clip polygon
+	 * @param clipY                y-coordinates of the convex clip polygon
+	 * @param clipLength           number of points of the clip polygon
+	 * @param clipCounterClockwise true, if the clip polygon is oriented counterclockwise
+	 * @param x                    x-coordinates of the convex polygon to be clipped
+	 * @param y                    y-coordinates of the convex polygon to be clipped
+	 * @param n                    number of points of the polygon to be clipped
+	 * @return number of points of the intersection, 0, if the intersection is empty
+	 */
+	public int clip(double[] clipX, double[] clipY, int clipLength, boolean clipCounterClockwise, double[] x, double[] y, int n) {
+		start(x, y, n, clipLength);
+		var orientation = (clipCounterClockwise ? 1.0 : -1.0);
+		for (int i = 0, j = clipLength - 1; i < clipLength && length > 0; j = i++) {
+			var dx = orientation * (clipX[i] - clipX[j]);
+			var dy = orientation * (clipY[i] - clipY[j]);
+			clipHalfPlane(-dy, dx, dy * clipX[j] - dx * clipY[j]);
+		}
+		return finish();
+	}
+
+	/**
+	 * clips the polygon (x,y) against the intersection of the half planes a[i]*x+b[i]*y+c[i]>=0
+	 *
+	 * @param a x-coefficients of the half planes
+	 * @param b y-coefficients of the half planes
+	 * @param c constant terms of the half planes
+	 * @param m number of half planes
+	 * @param x x-coordinates of the convex polygon to be clipped
+	 * @param y y-coordinates of the convex polygon to be clipped
+	 * @param n number of points of the polygon to be clipped
+	 * @return number of points of the intersection, 0, if the intersection is empty
+	 */
+	public int clip(double[] a, double[] b, double[] c, int m, double[] x, double[] y, int n) {
+		start(x, y, n, m);
+		for (var i = 0; i < m && length > 0; i++) {
+			clipHalfPlane(a[i], b[i], c[i]);
+		}
+		return finish();
+	}
+
+	private void start(double[] x, double[] y, int n, int m) {
+		ensureCapacity(n + m + 1);
+		System.arraycopy(x, 0, xIn, 0, n);
+		System.arraycopy(y, 0, yIn, 0, n);
+		length = n;
+	}
+
+	private int finish() {
+		removeDuplicates();
+		if (length < 3)
+			length = 0;
+		return length;
+	}
+
+	/**
+	 * clips the current points against the half plane a*x+b*y+c>=0
+	 */
+	private void clipHalfPlane(double a, double b, double c) {
+		var inside = 0;
+		for (var i = 0; i < length; i++) {
+			side[i] = a * xIn[i] + b * yIn[i] + c;
+			if (side[i] >= 0)
+				inside++;
+		}
+		if (inside == length)
+			return;
+		if (inside == 0) {
+			length = 0;
+			return;
+		}
+		// each point outside contributes at most two intersection points, this only matters for non-convex input
+		ensureCapacity(2 * length - inside + 1);
+
+		var count = 0;
+		for (int i = 0, j = length - 1; i < length; j = i++) {
+			var sideI = side[i];
+			var sideJ = side[j];
+			if (sideI >= 0) {
+				if (sideJ < 0) {
+					var t = sideJ / (sideJ - sideI);
+					xOut[count] = xIn[j] + t * (xIn[i] - xIn[j]);
+					yOut[count++] = yIn[j] + t * (yIn[i] - yIn[j]);
+				}
+				xOut[count] = xIn[i];
+				yOut[count++] = yIn[i];
+			} else if (sideJ >= 0) {
+				var t = sideJ / (sideJ - sideI);
+				xOut[count] = xIn[j] + t * (xIn[i] - xIn[j]);
+				yOut[count++] = yIn[j] + t * (yIn[i] - yIn[j]);
+			}
+		}
+		swapBuffers();
+		length = count;
+	}
+
+	/**
+	 * removes consecutive points that coincide, including the last and first point
+	 */
+	private void removeDuplicates() {
+		if (length == 0)
+			return;
+		var count = 1;
+		for (var i = 1; i < length; i++) {
+			if (Math.abs(xIn[i] - xIn[count - 1]) > epsilon || Math.abs(yIn[i] - yIn[count - 1]) > epsilon) {
+				xIn[count] = xIn[i];
+				yIn[count++] = yIn[i];
+			}
+		}
+		while (count > 1 && Math.abs(xIn[count - 1] - xIn[0]) <= epsilon && Math.abs(yIn[count - 1] - yIn[0]) <= epsilon)
+			count--;
+		length = count;
+	}
+
+	private void swapBuffers() {
+		var tmp = xIn;
+		xIn = xOut;
+		xOut = tmp;
+		tmp = yIn;
+		yIn = yOut;
+		yOut = tmp;
+	}
+
+	/**
+	 * for a convex polygon, each clipping step adds at most one point, so the buffers need to hold n+m points.
+	 * The current points are kept when growing.
+	 */
+	private void ensureCapacity(int capacity) {
+		if (xIn.length < capacity) {
+			var newCapacity = Math.max(capacity, 2 * xIn.length);
+			xIn = Arrays.copyOf(xIn, newCapacity);
+			yIn = Arrays.copyOf(yIn, newCapacity);
+			xOut = new double[newCapacity];
+			yOut = new double[newCapacity];
+			side = Arrays.copyOf(side, newCapacity);
+		}
+	}
+
+	/**
+	 * gets the buffers for clipping with a {@link PolygonClipRegion}, which are created on first use
+	 */
+	PolygonClipRegion.Scratch getRegionScratch() {
+		if (regionScratch == null)
+			regionScratch = new PolygonClipRegion.Scratch();
+		return regionScratch;
+	}
+
+	/**
+	 * number of points of the last result
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * x-coordinates of the last result, only valid up to {@link #getLength()} and until the next call
+	 */
+	public double[] getX() {
+		return xIn;
+	}
+
+	/**
+	 * y-coordinates of the last result, only valid up to {@link #getLength()} and until the next call
+	 */
+	public double[] getY() {
+		return yIn;
+	}
+
+	/**
+	 * copies the last result into a new polygon
+	 *
+	 * @return polygon, or null, if the last result was empty
+	 */
+	public PolygonSimple getPolygon() {
+		if (length == 0)
+			return null;
+		return new PolygonSimple(xIn, yIn, length);
+	}
+}
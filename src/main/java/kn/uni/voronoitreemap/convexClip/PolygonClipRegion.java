@@ -0,0 +1,557 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.convexClip;
+
+import kn.uni.voronoitreemap.j2d.PolygonKernels;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+import java.util.Arrays;
+
+/**
+ * a non-convex clip polygon, possibly with holes that are connected to the outer boundary by bridge edges, or a
+ * polygon that consists of several disjoint parts.
+ * <p>
+ * The bounding box of the polygon is decomposed once into a uniform grid. For each grid cell, we store the polygon
+ * edges that meet it and whether its center lies inside the polygon. A point is tested by counting the crossings of
+ * the segment from the center of its grid cell to the point with the few edges of that cell, so contains() runs in
+ * expected constant time. Clipping a convex Voronoi cell that only meets grid cells without edges returns the
+ * cell itself or nothing. Otherwise, only the edges in the grid cells below the cell are clipped by the cell, the
+ * clipped edges are followed from where the boundary enters the cell to where it leaves it, and these chains are
+ * closed along the border of the cell. If the intersection is disconnected, each connected piece becomes a separate
+ * part of the result.
+ */
+public class PolygonClipRegion extends ClipRegion {
+	private final double[] x;
+	private final double[] y;
+	private final int length;
+	/**
+	 * edge i goes from point i to point next[i], the point that follows i in its part
+	 */
+	private final int[] next;
+
+	private final int columns;
+	private final int rows;
+	private final double cellWidth;
+	private final double cellHeight;
+	/**
+	 * the edges meeting grid cell k are cellEdges[cellStart[k]] ... cellEdges[cellStart[k+1]-1]
+	 */
+	private final int[] cellStart;
+	private final int[] cellEdges;
+	private final boolean[] centerInside;
+
+	/**
+	 * constructor
+	 *
+	 * @param polygon the clip polygon
+	 */
+	public PolygonClipRegion(PolygonSimple polygon) {
+		super(polygon);
+		length = polygon.getNumPoints();
+		x = new double[length];
+		y = new double[length];
+		next = new int[length];
+		// each part is stored counterclockwise, so that the region lies to the left of each edge
+		var px = polygon.getXPoints();
+		var py = polygon.getYPoints();
+		for (var part = 0; part < polygon.getNumParts(); part++) {
+			var start = polygon.getPartStart(part);
+			var end = polygon.getPartEnd(part);
+			var signedArea = 0.0;
+			for (int i = start, j = end - 1; i < end; j = i++)
+				signedArea += px[j] * py[i] - px[i] * py[j];
+			for (var i = start; i < end; i++) {
+				var source = (signedArea >= 0 ? i : start + end - 1 - i);
+				x[i] = px[source];
+				y[i] = py[source];
+				next[i] = (i + 1 == end ? start : i + 1);
+			}
+		}
+
+		// about four grid cells per edge, with the aspect ratio of the bounding box
+		var width = Math.max(maxX - minX, Double.MIN_NORMAL);
+		var height = Math.max(maxY - minY, Double.MIN_NORMAL);
+		var numberOfCells = Math.min(1 << 16, Math.max(16, 4 * length));
+		columns = Math.max(1, (int) Math.round(Math.sqrt(numberOfCells * width / height)));
+		rows = Math.max(1, (int) Math.round((double) numberOfCells / columns));
+		cellWidth = width / columns;
+		cellHeight = height / rows;
+
+		// assign each edge to all grid cells met by its bounding box, counting in the first pass and filling in the second
+		cellStart = new int[columns * rows + 1];
+		int[] edges = null;
+		int[] fill = null;
+		for (var pass = 0; pass < 2; pass++) {
+			for (var i = 0; i < length; i++) {
+				var j = next[i];
+				var c0 = column(Math.min(x[i], x[j]));
+				var c1 = column(Math.max(x[i], x[j]));
+				var r0 = row(Math.min(y[i], y[j]));
+				var r1 = row(Math.max(y[i], y[j]));
+				for (var r = r0; r <= r1; r++) {
+					for (var c = c0; c <= c1; c++) {
+						if (pass == 0)
+							cellStart[r * columns + c + 1]++;
+						else
+							edges[fill[r * columns + c]++] = i;
+					}
+				}
+			}
+			if (pass == 0) {
+				for (var k = 0; k < columns * rows; k++)
+					cellStart[k + 1] += cellStart[k];
+				edges = new int[cellStart[columns * rows]];
+				fill = Arrays.copyOf(cellStart, columns * rows);
+			}
+		}
+		cellEdges = edges;
+
+		// determine for the center of each grid cell whether it is inside, by a scan line per row
+		centerInside = new boolean[columns * rows];
+		var crossings = new double[length];
+		for (var r = 0; r < rows; r++) {
+			var cy = minY + (r + 0.5) * cellHeight;
+			var count = 0;
+			for (var i = 0; i < length; i++) {
+				var j = next[i];
+				if ((y[i] <= cy) != (y[j] <= cy))
+					crossings[count++] = x[j] + (cy - y[j]) * (x[i] - x[j]) / (y[i] - y[j]);
+			}
+			Arrays.sort(crossings, 0, count);
+			var index = 0;
+			for (var c = 0; c < columns; c++) {
+				var cx = minX + (c + 0.5) * cellWidth;
+				while (index < count && crossings[index] < cx)
+					index++;
+				centerInside[r * columns + c] = (index % 2 == 1);
+			}
+		}
+	}
+
+	private int column(double px) {
+		return Math.max(0, Math.min(columns - 1, (int) ((px - minX) / cellWidth)));
+	}
+
+	private int row(double py) {
+		return Math.max(0, Math.min(rows - 1, (int) ((py - minY) / cellHeight)));
+	}
+
+	@Override
+	public boolean contains(double px, double py) {
+		if (px < minX || px > maxX || py < minY || py > maxY)
+			return false;
+		var c = column(px);
+		var r = row(py);
+		var cell = r * columns + c;
+		var inside = centerInside[cell];
+		var cx = minX + (c + 0.5) * cellWidth;
+		var cy = minY + (r + 0.5) * cellHeight;
+		for (var k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+			var i = cellEdges[k];
+			var j = next[i];
+			if (crosses(cx, cy, px, py, x[i], y[i], x[j], y[j]))
+				inside = !inside;
+		}
+		return inside;
+	}
+
+	/**
+	 * does segment (ax,ay)-(bx,by) cross segment (cx,cy)-(dx,dy)? Points on a line are consistently counted as lying
+	 * on its negative side, so that a segment passing through a polygon vertex is counted once.
+	 */
+	private static boolean crosses(double ax, double ay, double bx, double by, double cx, double cy, double dx, double dy) {
+		var c = (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+		var d = (bx - ax) * (dy - ay) - (by - ay) * (dx - ax);
+		if ((c > 0) == (d > 0))
+			return false;
+		var a = (dx - cx) * (ay - cy) - (dy - cy) * (ax - cx);
+		var b = (dx - cx) * (by - cy) - (dy - cy) * (bx - cx);
+		return (a > 0) != (b > 0);
+	}
+
+	@Override
+	public PolygonSimple clip(double[] cellX, double[] cellY, int n, ConvexClipper clipper) {
+		var cellMinX = Double.MAX_VALUE;
+		var cellMaxX = -Double.MAX_VALUE;
+		var cellMinY = Double.MAX_VALUE;
+		var cellMaxY = -Double.MAX_VALUE;
+		var signedArea = 0.0;
+		for (int i = 0, j = n - 1; i < n; j = i++) {
+			cellMinX = Math.min(cellMinX, cellX[i]);
+			cellMaxX = Math.max(cellMaxX, cellX[i]);
+			cellMinY = Math.min(cellMinY, cellY[i]);
+			cellMaxY = Math.max(cellMaxY, cellY[i]);
+			signedArea += cellX[j] * cellY[i] - cellX[i] * cellY[j];
+		}
+		if (cellMaxX < minX || cellMinX > maxX || cellMaxY < minY || cellMinY > maxY || n < 3)
+			return null;
+		var insideBounds = (cellMinX >= minX && cellMaxX <= maxX && cellMinY >= minY && cellMaxY <= maxY);
+
+		// collect the edges that meet the grid cells below the cell
+		var c0 = column(cellMinX);
+		var c1 = column(cellMaxX);
+		var r0 = row(cellMinY);
+		var r1 = row(cellMaxY);
+		var count = 0;
+		for (var r = r0; r <= r1; r++)
+			count += cellStart[r * columns + c1 + 1] - cellStart[r * columns + c0];
+		if (count == 0) {
+			// the cell does not meet the boundary, so it is completely inside or outside
+			if (insideBounds && centerInside[r0 * columns + c0]) {
+				var result = new PolygonSimple(cellX, cellY, n);
+				result.setConvex(true);
+				return result;
+			} else
+				return null;
+		}
+		var scratch = clipper.getRegionScratch();
+		scratch.ensureCapacity(count, n);
+		var candidates = scratch.candidates;
+		count = 0;
+		for (var r = r0; r <= r1; r++) {
+			var from = cellStart[r * columns + c0];
+			var to = cellStart[r * columns + c1 + 1];
+			System.arraycopy(cellEdges, from, candidates, count, to - from);
+			count += to - from;
+		}
+		Arrays.sort(candidates, 0, count);
+		var m = 0;
+		for (var k = 0; k < count; k++) {
+			if (m == 0 || candidates[m - 1] != candidates[k])
+				candidates[m++] = candidates[k];
+		}
+
+		// the cell is processed counterclockwise, so that it lies to the left of its edges, like the region
+		var kx = cellX;
+		var ky = cellY;
+		if (signedArea < 0) {
+			kx = scratch.kx;
+			ky = scratch.ky;
+			for (var i = 0; i < n; i++) {
+				kx[i] = cellX[n - 1 - i];
+				ky[i] = cellY[n - 1 - i];
+			}
+		}
+
+		// clip each candidate edge to the part from parameter low to high that lies in the cell
+		var low = scratch.low;
+		var high = scratch.high;
+		var entering = scratch.entering;
+		var leaving = scratch.leaving;
+		for (var e = 0; e < m; e++) {
+			var i = candidates[e];
+			var j = next[i];
+			var t0 = 0.0;
+			var t1 = 1.0;
+			entering[e] = -1;
+			leaving[e] = -1;
+			for (var k = 0; k < n && t0 <= t1; k++) {
+				var l = (k + 1 == n ? 0 : k + 1);
+				var d0 = cross(kx[k], ky[k], kx[l], ky[l], x[i], y[i]);
+				var d1 = cross(kx[k], ky[k], kx[l], ky[l], x[j], y[j]);
+				if (d0 < 0 && d1 < 0)
+					t0 = 2;
+				else if (d0 < 0) {
+					var t = d0 / (d0 - d1);
+					if (t > t0) {
+						t0 = t;
+						entering[e] = k;
+					}
+				} else if (d1 < 0) {
+					var t = d0 / (d0 - d1);
+					if (t < t1) {
+						t1 = t;
+						leaving[e] = k;
+					}
+				}
+			}
+			low[e] = t0;
+			high[e] = t1;
+		}
+
+		// follow the clipped edges from each point where the boundary enters the cell to where it leaves it again
+		var visited = scratch.visited;
+		Arrays.fill(visited, 0, m, false);
+		var chainX = scratch.chainX;
+		var chainY = scratch.chainY;
+		var chainStart = scratch.chainStart;
+		var entryPosition = scratch.entryPosition;
+		var exitPosition = scratch.exitPosition;
+		var entryEdge = scratch.entryEdge;
+		var exitEdge = scratch.exitEdge;
+		var chains = 0;
+		var points = 0;
+		for (var first = 0; first < m; first++) {
+			if (visited[first] || !(low[first] > 0 && low[first] <= high[first]))
+				continue;
+			var start = points;
+			var e = first;
+			var i = candidates[e];
+			intersect(kx, ky, n, entering[e], i, next[i], chainX, chainY, points++);
+			entryPosition[chains] = borderPosition(kx, ky, n, entering[e], chainX[start], chainY[start]);
+			entryEdge[chains] = i;
+			while (true) {
+				visited[e] = true;
+				i = candidates[e];
+				var j = next[i];
+				if (high[e] < 1) {
+					intersect(kx, ky, n, leaving[e], i, j, chainX, chainY, points);
+					exitPosition[chains] = borderPosition(kx, ky, n, leaving[e], chainX[points], chainY[points]);
+					exitEdge[chains] = i;
+					points++;
+					break;
+				}
+				// the boundary continues in the cell at point j
+				chainX[points] = x[j];
+				chainY[points++] = y[j];
+				e = Arrays.binarySearch(candidates, 0, m, j);
+				if (e < 0 || visited[e] || low[e] != 0 || high[e] < low[e])
+					return clipBoundary(cellX, cellY, n, signedArea > 0, clipper);
+			}
+			// a chain that only touches the border of the cell in a single point is ignored
+			var degenerate = true;
+			for (var k = start + 1; degenerate && k < points; k++)
+				degenerate = (chainX[k] == chainX[start] && chainY[k] == chainY[start]);
+			if (degenerate)
+				points = start;
+			else
+				chainStart[++chains] = points;
+		}
+
+		var result = new PolygonSimple(points + n);
+		var minArea = 1E-12 * area;
+
+		// close the chains to pieces along the border of the cell, which is traversed counterclockwise from the point
+		// where a chain leaves the cell to the next point where a chain enters it
+		var used = scratch.used;
+		Arrays.fill(used, 0, chains, false);
+		for (var first = 0; first < chains; first++) {
+			if (used[first])
+				continue;
+			scratch.partLength = 0;
+			var c = first;
+			while (true) {
+				used[c] = true;
+				for (var k = chainStart[c]; k < chainStart[c + 1]; k++)
+					scratch.addPartPoint(chainX[k], chainY[k]);
+				var exit = exitPosition[c];
+				var best = -1;
+				var bestDistance = Double.MAX_VALUE;
+				for (var d = 0; d < chains; d++) {
+					var distance = entryPosition[d] - exit;
+					if (distance < 0)
+						distance += n;
+					if (distance == 0) {
+						// the boundary leaves and enters the cell at the same point: we continue with the entering chain
+						// only if it turns to the left of the leaving one, otherwise, as for the two sides of a bridge,
+						// the piece continues along the border of the cell
+						var a = exitEdge[c];
+						var b = entryEdge[d];
+						distance = (cross(0, 0, x[next[a]] - x[a], y[next[a]] - y[a], x[next[b]] - x[b], y[next[b]] - y[b]) > 0 ? 0 : n);
+					}
+					if (distance < bestDistance) {
+						bestDistance = distance;
+						best = d;
+					}
+				}
+				for (var v = (int) Math.floor(exit) + 1; v - exit < bestDistance; v++)
+					scratch.addPartPoint(kx[v % n], ky[v % n]);
+				if (best == first)
+					break;
+				if (used[best])
+					return clipBoundary(cellX, cellY, n, signedArea > 0, clipper);
+				c = best;
+			}
+			addPart(result, scratch.partX, scratch.partY, scratch.partLength, minArea);
+		}
+
+		// parts of the region that lie completely inside the cell
+		var hasRing = false;
+		for (var first = 0; first < m; first++) {
+			if (visited[first] || !(low[first] <= high[first]))
+				continue;
+			if (low[first] > 0 || high[first] < 1)
+				return clipBoundary(cellX, cellY, n, signedArea > 0, clipper);
+			scratch.partLength = 0;
+			var e = first;
+			do {
+				visited[e] = true;
+				var i = candidates[e];
+				scratch.addPartPoint(x[i], y[i]);
+				e = Arrays.binarySearch(candidates, 0, m, next[i]);
+				if (e < 0 || (visited[e] && e != first) || low[e] != 0 || high[e] < 1)
+					return clipBoundary(cellX, cellY, n, signedArea > 0, clipper);
+			} while (e != first);
+			addPart(result, scratch.partX, scratch.partY, scratch.partLength, minArea);
+			hasRing = true;
+		}
+
+		if (chains == 0 && !hasRing) {
+			// the boundary does not cross the cell, so the cell is completely inside or outside
+			var cx = 0.0;
+			var cy = 0.0;
+			for (var i = 0; i < n; i++) {
+				cx += cellX[i];
+				cy += cellY[i];
+			}
+			if (insideBounds && contains(cx / n, cy / n)) {
+				result = new PolygonSimple(cellX, cellY, n);
+				result.setConvex(true);
+				return result;
+			} else
+				return null;
+		}
+		if (result.getNumPoints() == 0)
+			return null;
+		if (result.getArea() > Math.abs(0.5 * signedArea) * (1 + 1E-9))
+			return clipBoundary(cellX, cellY, n, signedArea > 0, clipper);
+		return result;
+	}
+
+	/**
+	 * appends the given piece as a new part of the result, unless its area is negligible
+	 */
+	private static void addPart(PolygonSimple result, double[] px, double[] py, int n, double minArea) {
+		if (n < 3 || Math.abs(PolygonKernels.getInstance().signedArea(px, py, n)) <= minArea)
+			return;
+		result.startNewPart();
+		for (var i = 0; i < n; i++)
+			result.add(px[i], py[i]);
+	}
+
+	/**
+	 * computes the point where edge i-j crosses the line through edge k of the cell. The endpoints are taken in a fixed
+	 * order, so that the two sides of a bridge give the same point, and an endpoint on the line is returned exactly.
+	 */
+	private void intersect(double[] kx, double[] ky, int n, int k, int i, int j, double[] resultX, double[] resultY, int index) {
+		if (x[i] > x[j] || (x[i] == x[j] && y[i] > y[j])) {
+			var tmp = i;
+			i = j;
+			j = tmp;
+		}
+		var l = (k + 1 == n ? 0 : k + 1);
+		var d0 = cross(kx[k], ky[k], kx[l], ky[l], x[i], y[i]);
+		var d1 = cross(kx[k], ky[k], kx[l], ky[l], x[j], y[j]);
+		if (d0 == 0 || d1 == 0) {
+			var p = (d0 == 0 ? i : j);
+			resultX[index] = x[p];
+			resultY[index] = y[p];
+		} else {
+			var t = d0 / (d0 - d1);
+			resultX[index] = x[i] + t * (x[j] - x[i]);
+			resultY[index] = y[i] + t * (y[j] - y[i]);
+		}
+	}
+
+	/**
+	 * the position of a point on the border of a convex polygon, given as the index of the edge that contains it plus
+	 * the fraction of the edge that lies before the point
+	 */
+	private static double borderPosition(double[] kx, double[] ky, int n, int k, double px, double py) {
+		var l = (k + 1 == n ? 0 : k + 1);
+		var dx = kx[l] - kx[k];
+		var dy = ky[l] - ky[k];
+		var squaredLength = dx * dx + dy * dy;
+		var fraction = (squaredLength > 0 ? ((px - kx[k]) * dx + (py - ky[k]) * dy) / squaredLength : 0);
+		var position = k + Math.max(0, Math.min(1, fraction));
+		return (position >= n ? position - n : position);
+	}
+
+	/**
+	 * cross product of (b-a) and (p-a), positive, if p lies to the left of the line from a to b
+	 */
+	private static double cross(double ax, double ay, double bx, double by, double px, double py) {
+		return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+	}
+
+	/**
+	 * clips each part of the boundary by the half planes of the convex cell. This is only used if the chains of
+	 * clipped edges are inconsistent due to rounding, in which case the pieces of a part may be joined by zero-width
+	 * bridges along the border of the cell.
+	 */
+	private PolygonSimple clipBoundary(double[] cellX, double[] cellY, int n, boolean counterClockwise, ConvexClipper clipper) {
+		var result = new PolygonSimple();
+		var minArea = 1E-12 * area;
+		for (var part = 0; part < polygon.getNumParts(); part++) {
+			var start = polygon.getPartStart(part);
+			var end = polygon.getPartEnd(part);
+			var partX = (start == 0 && end == length ? x : Arrays.copyOfRange(x, start, end));
+			var partY = (start == 0 && end == length ? y : Arrays.copyOfRange(y, start, end));
+			if (clipper.clip(cellX, cellY, n, counterClockwise, partX, partY, end - start) > 0)
+				addPart(result, clipper.getX(), clipper.getY(), clipper.getLength(), minArea);
+		}
+		return (result.getNumPoints() == 0 ? null : result);
+	}
+
+	@Override
+	public boolean isConvex() {
+		return false;
+	}
+
+	/**
+	 * buffers used by clip(). As a region is shared by the threads that compute a diagram, they are owned by the
+	 * {@link ConvexClipper} of each thread. They grow to the size needed and are then reused, like the buffers of the
+	 * clipper itself
+	 */
+	static final class Scratch {
+		private int[] candidates = new int[16];
+		private double[] kx = new double[16];
+		private double[] ky = new double[16];
+		private double[] low = new double[16];
+		private double[] high = new double[16];
+		private int[] entering = new int[16];
+		private int[] leaving = new int[16];
+		private boolean[] visited = new boolean[16];
+		private double[] chainX = new double[34];
+		private double[] chainY = new double[34];
+		private int[] chainStart = new int[17];
+		private double[] entryPosition = new double[16];
+		private double[] exitPosition = new double[16];
+		private int[] entryEdge = new int[16];
+		private int[] exitEdge = new int[16];
+		private boolean[] used = new boolean[16];
+		private double[] partX = new double[32];
+		private double[] partY = new double[32];
+		private int partLength;
+
+		/**
+		 * ensures room for the given number of candidate edges, with and without duplicates, and a cell of n points
+		 */
+		private void ensureCapacity(int edges, int n) {
+			if (kx.length < n) {
+				kx = new double[Math.max(n, 2 * kx.length)];
+				ky = new double[kx.length];
+			}
+			if (candidates.length < edges) {
+				var capacity = Math.max(edges, 2 * candidates.length);
+				candidates = new int[capacity];
+				low = new double[capacity];
+				high = new double[capacity];
+				entering = new int[capacity];
+				leaving = new int[capacity];
+				visited = new boolean[capacity];
+				chainX = new double[2 * capacity + 2];
+				chainY = new double[2 * capacity + 2];
+				chainStart = new int[capacity + 1];
+				entryPosition = new double[capacity];
+				exitPosition = new double[capacity];
+				entryEdge = new int[capacity];
+				exitEdge = new int[capacity];
+				used = new boolean[capacity];
+			}
+		}
+
+		private void addPartPoint(double px, double py) {
+			if (partLength == partX.length) {
+				partX = Arrays.copyOf(partX, 2 * partLength);
+				partY = Arrays.copyOf(partY, 2 * partLength);
+			}
+			partX[partLength] = px;
+			partY[partLength++] = py;
+		}
+	}
+}
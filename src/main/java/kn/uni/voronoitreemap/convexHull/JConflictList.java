@@ -48,6 +48,13 @@ public class JConflictList {
 		}
 	}
 
+	/**
+	 * forgets all entries, so that the list can be reused for a new hull
+	 */
+	public void clear() {
+		head = null;
+	}
+
 	public boolean empty() {
 		return head == null;
 	}
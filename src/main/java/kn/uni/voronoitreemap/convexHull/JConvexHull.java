@@ -15,7 +15,8 @@ package kn.uni.voronoitreemap.convexHull;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Class for computing the convex hull of given vertices with a randomized incremental algorithm in O(n*log(n)) after book of Mark de Berg/Marc van Kreveld
@@ -39,7 +40,7 @@ public class JConvexHull {
 
 	private boolean permutate = false;
 
-	protected final Random rand = new Random(1985);
+	protected final RandomGenerator rand = new SplittableRandom(1985);
 
 	public JConvexHull() {
 		points = new ArrayList<JVertex>();
@@ -57,6 +58,14 @@ public class JConvexHull {
 		points.add(tempVertex);
 	}
 
+	/**
+	 * adds the given vertex itself, rather than a copy, so that callers can reuse their vertices
+	 */
+	public void addVertex(JVertex v) {
+		v.setIndex(points.size());
+		points.add(v);
+	}
+
 	public void addPoint(double x, double y, double z) {
 		JVertex v = new JVertex(x, y, z);
 		v.setIndex(points.size());
@@ -123,6 +132,11 @@ public class JConvexHull {
 				}
 				++current;
 				created.clear();
+			} else {
+				// no horizon was found, e.g. for a duplicate point, so the point cannot be inserted and is skipped
+				for (JFace f : visible)
+					f.setMarked(false);
+				++current;
 			}
 		}
 		return facets;
@@ -137,8 +137,18 @@ public class JVertex {
 	}
 
 	public void clear() {
-		list = new JConflictList(false);
+		list.clear();
 		index = -1;
 		handled = false;
 	}
+
+	/**
+	 * resets the vertex to the given coordinates, so that it can be reused for a new hull
+	 */
+	public void set(double x, double y, double z) {
+		clear();
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
 }
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.core;
+
+import kn.uni.voronoitreemap.convexClip.ConvexClipper;
+import kn.uni.voronoitreemap.datastructure.OpenList;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Site;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * closed-form layouts of two or three sites in a convex polygon, without computing power diagrams.
+ * <p>
+ * The polygon is cut into two or three pieces by parallel lines perpendicular to the longer side of its bounding
+ * box, and the offset of each line that gives the desired ratio of areas is found by bisection. Sites are assigned
+ * to the pieces in the order of their initial positions along the cutting direction. Parallel strips are the cells
+ * of a power diagram of sites on a common line along the cutting direction, so the sites are placed on a line that
+ * crosses all pieces, if there is one, each inside its piece, and each gets the weight for which the bisectors of
+ * consecutive sites are the cuts. The areas match the desired ones to within floating point precision.
+ */
+public class AnalyticLayout {
+	private static final int MAX_BISECTION_STEPS = 100;
+	private static final double RELATIVE_TOLERANCE = 1E-12;
+
+	/**
+	 * lays out two or three sites in a convex polygon. On success, each site gets its polygon, is moved to the
+	 * position and weight for which the power diagram of the sites gives these polygons, and has all other sites as
+	 * neighbours
+	 *
+	 * @param sites   the sites, with their desired percentages
+	 * @param polygon the polygon
+	 * @return true, if the sites were laid out, false, if there are not two or three sites, the polygon is not convex,
+	 * or a cut failed
+	 */
+	public static boolean apply(OpenList sites, PolygonSimple polygon) {
+		var n = sites.size;
+		if (n < 2 || n > 3 || !polygon.isConvex())
+			return false;
+		var total = 0.0;
+		for (var i = 0; i < n; i++)
+			total += sites.array[i].getPercentage();
+		if (!(total > 0))
+			return false;
+
+		var bounds = polygon.getBounds();
+		var alongX = (bounds.getWidth() >= bounds.getHeight());
+		var dx = (alongX ? 1.0 : 0.0);
+		var dy = (alongX ? 0.0 : 1.0);
+		var ordered = Arrays.copyOf(sites.array, n);
+		Arrays.sort(ordered, Comparator.comparingDouble(site -> dx * site.getX() + dy * site.getY()));
+
+		// cut off one piece after the other, the offsets of the cuts grow
+		var clipper = new ConvexClipper();
+		var cells = new PolygonSimple[n];
+		var offsets = new double[n - 1];
+		var remaining = polygon;
+		for (var k = 0; k < n - 1; k++) {
+			var rest = 0.0;
+			for (var m = k; m < n; m++)
+				rest += ordered[m].getPercentage();
+			var pieces = split(remaining, ordered[k].getPercentage() / rest, dx, dy, clipper, offsets, k);
+			if (pieces == null)
+				return false;
+			cells[k] = pieces[0];
+			remaining = pieces[1];
+		}
+		cells[n - 1] = remaining;
+
+		// in coordinates u along the cutting direction and v across it, the sites lie on a line v=line, and the
+		// bisector of the sites at u=a_i and u=a_j is u=(a_i+a_j)/2+(w_i-w_j)/(2(a_j-a_i)), which is set to the cut
+		var numberOfPoints = polygon.getNumPoints();
+		var u = new double[numberOfPoints];
+		var v = new double[numberOfPoints];
+		for (var i = 0; i < numberOfPoints; i++) {
+			u[i] = dx * polygon.getXPoints()[i] + dy * polygon.getYPoints()[i];
+			v[i] = dy * polygon.getXPoints()[i] + dx * polygon.getYPoints()[i];
+		}
+		var low = Double.NEGATIVE_INFINITY;
+		var high = Double.POSITIVE_INFINITY;
+		for (var offset : offsets) {
+			var range = chord(u, v, offset);
+			low = Math.max(low, range[0]);
+			high = Math.min(high, range[1]);
+		}
+		var position = new double[n];
+		double line;
+		if (low < high) {
+			line = 0.5 * (low + high);
+			var range = chord(v, u, line);
+			for (var k = 0; k < n; k++)
+				position[k] = 0.5 * (Math.max(range[0], k > 0 ? offsets[k - 1] : range[0]) + Math.min(range[1], k < n - 1 ? offsets[k] : range[1]));
+		} else {
+			// no line crosses all pieces, the sites lie on the line through the centroid, level with their pieces
+			var center = polygon.getCentroid();
+			line = dy * center.getX() + dx * center.getY();
+			for (var k = 0; k < n; k++)
+				position[k] = dx * cells[k].getCentroid().getX() + dy * cells[k].getCentroid().getY();
+		}
+		var weight = new double[n];
+		for (var k = 1; k < n; k++) {
+			if (!(position[k] > position[k - 1]))
+				return false;
+			weight[k] = weight[k - 1] - 2 * (position[k] - position[k - 1]) * (offsets[k - 1] - 0.5 * (position[k - 1] + position[k]));
+		}
+		var minWeight = Arrays.stream(weight).min().orElse(0);
+
+		for (var k = 0; k < n; k++) {
+			var site = ordered[k];
+			site.setXYW(dx * position[k] + dy * line, dy * position[k] + dx * line, weight[k] - minWeight);
+			site.setPolygon(cells[k]);
+			var neighbours = new ArrayList<Site>();
+			for (var other : ordered) {
+				if (other != site)
+					neighbours.add(other);
+			}
+			site.setNeighbours(neighbours);
+		}
+		return true;
+	}
+
+	/**
+	 * cuts a convex polygon by a line perpendicular to the given direction
+	 *
+	 * @param polygon  the polygon
+	 * @param fraction the fraction of the area that the first piece should have
+	 * @param dx       the direction, a unit vector
+	 * @param dy       the direction
+	 * @param clipper  scratch buffers
+	 * @param offsets  receives the offset t of the line d*p=t
+	 * @param index    the index in offsets
+	 * @return the piece on the lower side and the piece on the upper side of the line, or null
+	 */
+	private static PolygonSimple[] split(PolygonSimple polygon, double fraction, double dx, double dy, ConvexClipper clipper, double[] offsets, int index) {
+		if (!(fraction > 0 && fraction < 1))
+			return null;
+		var bounds = polygon.getBounds();
+		var low = (dx != 0 ? bounds.getMinX() : bounds.getMinY());
+		var high = (dx != 0 ? bounds.getMaxX() : bounds.getMaxY());
+		var x = polygon.getXPoints();
+		var y = polygon.getYPoints();
+		var n = polygon.getNumPoints();
+		var target = fraction * polygon.getArea();
+
+		// the half plane -d*p+t>=0, the area below the line d*p=t grows monotonically with t
+		var a = new double[]{-dx};
+		var b = new double[]{-dy};
+		var c = new double[1];
+		var offset = 0.5 * (low + high);
+		for (var step = 0; step < MAX_BISECTION_STEPS; step++) {
+			offset = 0.5 * (low + high);
+			c[0] = offset;
+			var area = areaBelow(a, b, c, x, y, n, clipper);
+			if (Math.abs(area - target) <= RELATIVE_TOLERANCE * target)
+				break;
+			if (area < target)
+				low = offset;
+			else
+				high = offset;
+		}
+		offsets[index] = offset;
+
+		c[0] = offset;
+		var length = clipper.clip(a, b, c, 1, x, y, n);
+		if (length == 0)
+			return null;
+		var lower = new PolygonSimple(Arrays.copyOf(clipper.getX(), length), Arrays.copyOf(clipper.getY(), length));
+		a[0] = dx;
+		b[0] = dy;
+		c[0] = -offset;
+		length = clipper.clip(a, b, c, 1, x, y, n);
+		if (length == 0)
+			return null;
+		var upper = new PolygonSimple(Arrays.copyOf(clipper.getX(), length), Arrays.copyOf(clipper.getY(), length));
+		lower.setConvex(true);
+		upper.setConvex(true);
+		return new PolygonSimple[]{lower, upper};
+	}
+
+	/**
+	 * intersects a convex polygon, given in coordinates s and q, with the line s=value
+	 *
+	 * @return the smallest and largest q of the intersection, which are infinite and negative infinite, if there
+	 * is none
+	 */
+	private static double[] chord(double[] s, double[] q, double value) {
+		var range = new double[]{Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+		for (int i = 0, j = s.length - 1; i < s.length; j = i++) {
+			if ((s[i] - value) * (s[j] - value) <= 0 && s[i] != s[j]) {
+				var crossing = q[j] + (value - s[j]) / (s[i] - s[j]) * (q[i] - q[j]);
+				range[0] = Math.min(range[0], crossing);
+				range[1] = Math.max(range[1], crossing);
+			}
+		}
+		return range;
+	}
+
+	/**
+	 * area of the part of the polygon where a*x+b*y+c >= 0
+	 */
+	private static double areaBelow(double[] a, double[] b, double[] c, double[] x, double[] y, int n, ConvexClipper clipper) {
+		var length = clipper.clip(a, b, c, 1, x, y, n);
+		var cx = clipper.getX();
+		var cy = clipper.getY();
+		var area = 0.0;
+		for (int i = 0, j = length - 1; i < length; j = i++)
+			area += cx[j] * cy[i] - cx[i] * cy[j];
+		return 0.5 * Math.abs(area);
+	}
+}
@@ -12,6 +12,13 @@ public class VoroSettings {
 
 	public double boostConvergence = 1.0;
 
+	/**
+	 * lay out two or three sites in a convex polygon by parallel cuts instead of iterating, see
+	 * {@link AnalyticLayout}; off by default, as the cells then follow the cutting direction rather than the
+	 * initial positions of the sites
+	 */
+	public boolean analyticSmallLayouts = false;
+
 	@Override
 	public VoroSettings clone() {
 		VoroSettings s = new VoroSettings();
@@ -20,6 +27,8 @@ public class VoroSettings {
 		s.cancelMaxIterat = cancelMaxIterat;
 		s.errorThreshold = errorThreshold;
 		s.maxIterat = maxIterat;
+		s.cancelOnLocalError = cancelOnLocalError;
+		s.analyticSmallLayouts = analyticSmallLayouts;
 
 		return s;
 
@@ -12,14 +12,20 @@
  ******************************************************************************/
 package kn.uni.voronoitreemap.core;
 
+import kn.uni.voronoitreemap.convexClip.ClipRegion;
 import kn.uni.voronoitreemap.datastructure.OpenList;
+import kn.uni.voronoitreemap.datastructure.SiteArrays;
 import kn.uni.voronoitreemap.diagram.PowerDiagram;
 import kn.uni.voronoitreemap.j2d.Point2D;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
 import kn.uni.voronoitreemap.j2d.Rectangle2D;
 import kn.uni.voronoitreemap.j2d.Site;
 
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.random.RandomGenerator;
 
 /**
  * Core class for generating Voronoi Treemaps. position and weight of sites is
@@ -32,7 +38,6 @@ public class VoronoiCore {
 	 * core variables
 	 */
 
-	private boolean firstIteration = true;
 	private static final double nearlyOne = 0.999;
 
 	/**
@@ -41,14 +46,39 @@ public class VoronoiCore {
 	VoroSettings settings = new VoroSettings();
 
 	protected PolygonSimple clipPolygon;
+	/**
+	 * half planes, bounds and area of the clip polygon, computed once whenever the clip polygon is set
+	 */
+	protected ClipRegion clipRegion;
 	protected OpenList sites;
+	/**
+	 * the sites as primitive arrays, which the iteration works on. They are loaded from and stored to the site
+	 * objects at the beginning and end of doIterate() and around calls of the public iteration methods
+	 */
+	protected final SiteArrays siteArrays = new SiteArrays();
 	protected PowerDiagram diagram;
+	/**
+	 * random source for relocating sites and for the power diagram, owned by this core
+	 */
+	private RandomGenerator random = new SplittableRandom(5);
 	private int currentIteration;
 	protected double currentAreaError = 1.0;
 
 	private Point2D center;
 	private double scale;
 	private double currentErrorMax;
+	private BooleanSupplier stopCondition;
+
+	/**
+	 * per-site area and centroid of the current diagram, together with the number of sites without a cell and
+	 * the average distance between neighbours, all collected in a single pass by collectStatistics()
+	 */
+	private double[] siteArea = new double[0];
+	private double[] siteCentroidX = new double[0];
+	private double[] siteCentroidY = new double[0];
+	private int sitesWithoutPolygon;
+	private double averageNeighbourDistance;
+	private int statisticsSize = -1;
 
 	/**
 	 * The resulting Voronoi cells are clipped with this polygon
@@ -57,8 +87,9 @@ public class VoronoiCore {
 	 */
 	public void setClipPolygon(PolygonSimple polygon) {
 		clipPolygon = polygon;
+		clipRegion = ClipRegion.create(polygon);
 		if (diagram != null)
-			diagram.setClipPoly(polygon);
+			diagram.setClipRegion(clipRegion);
 	}
 
 	/**
@@ -86,6 +117,61 @@ public class VoronoiCore {
 
 	private void init() {
 		diagram = new PowerDiagram();
+		diagram.setRandom(random);
+	}
+
+	/**
+	 * sets the random source, which must not be shared with other threads. Given the same random source, the same
+	 * sites and the same settings, the result is always the same
+	 *
+	 * @param random random source
+	 */
+	public void setRandom(RandomGenerator random) {
+		this.random = random;
+		diagram.setRandom(random);
+	}
+
+	/**
+	 * lets the power diagram clip the cells on several threads, see
+	 * {@link PowerDiagram#setParallelism(Executor, IntSupplier)}. The result does not depend on the number of threads
+	 *
+	 * @param executor    runs helper tasks, or null
+	 * @param parallelism the number of threads that may be used, asked for each diagram
+	 */
+	public void setParallelism(Executor executor, IntSupplier parallelism) {
+		diagram.setParallelism(executor, parallelism);
+	}
+
+	/**
+	 * sets a condition that is checked after each iteration that gives every site a cell, the iteration stops early
+	 * when it holds, for example, when another computation of the same layout has already succeeded
+	 *
+	 * @param stopCondition the condition, or null
+	 */
+	public void setStopCondition(BooleanSupplier stopCondition) {
+		this.stopCondition = stopCondition;
+	}
+
+	/**
+	 * @return the area error of the last diagram, as a fraction of the area of the clip polygon
+	 */
+	public double getAreaError() {
+		return currentAreaError;
+	}
+
+	/**
+	 * @return the maximal relative area error of a cell in the last diagram
+	 */
+	public double getMaxError() {
+		return currentErrorMax;
+	}
+
+	/**
+	 * @return true, if the last diagram has a cell for every site and meets the error threshold of the settings
+	 */
+	public boolean hasReachedThreshold() {
+		return sitesWithoutPolygon == 0 && currentAreaError < settings.errorThreshold
+			   && (!settings.cancelOnLocalError || currentErrorMax < settings.errorThreshold);
 	}
 
 	public VoronoiCore() {
@@ -119,30 +205,91 @@ public class VoronoiCore {
 	}
 
 	public void iterateSimple() {
+		siteArrays.load(sites);
+		// the statistics need the cells and neighbours of the current diagram
+		if (siteArrays.numberOfNeighbours == 0)
+			voroDiagram(siteArrays);
+		statisticsSize = -1;
+		iterate();
+		siteArrays.store(sites);
+	}
+
+	private void iterate() {
+		if (statisticsSize != siteArrays.size)
+			collectStatistics();
 		// if(currentIteration<=settings.maxIterat){
-		moveSites(sites);
-		checkPointsInPolygon(sites);
+		// moving the sites also checks that they are in the polygon
+		moveSites(siteArrays);
 		// }
 
 		// voroDiagram();//does not seem to be necessary
 		// fixNoPolygonSites();
 
 		// adapt weights
-		adaptWeightsSimple(sites);
-		voroDiagram();
+		adaptWeightsSimple(siteArrays);
+		voroDiagram(siteArrays);
 
 		// fixNoPolygonSites();
 		// fixWeightsIfDominated(sites);
-		currentAreaError = computeAreaError(sites);
-		currentErrorMax = computeMaxError(sites);
+		collectStatistics();
 		currentIteration++;
 	}
 
+	/**
+	 * Computes, in a single pass over the sites, the area and centroid of each cell, the area error, the maximal
+	 * relative error and the average distance between neighbouring sites of the current diagram
+	 */
+	private void collectStatistics() {
+		SiteArrays sites = siteArrays;
+		int size = sites.size;
+		if (siteArea.length < size) {
+			siteArea = new double[size];
+			siteCentroidX = new double[size];
+			siteCentroidY = new double[size];
+		}
+		double completeArea = clipRegion.getArea();
+		double errorArea = 0;
+		double maxError = 0;
+		double distanceSum = 0;
+		int distanceCount = 0;
+		int withoutPolygon = 0;
+		for (int z = 0; z < size; z++) {
+			PolygonSimple poly = sites.polygon[z];
+			double currentArea;
+			if (poly == null) {
+				currentArea = 0.0;
+				withoutPolygon++;
+			} else {
+				// computes the area in the same pass
+				Point2D centroid = poly.getCentroid();
+				siteCentroidX[z] = centroid.getX();
+				siteCentroidY[z] = centroid.getY();
+				currentArea = poly.getArea();
+			}
+			siteArea[z] = currentArea;
+
+			double wantedArea = completeArea * sites.percentage[z];
+			double difference = Math.abs(wantedArea - currentArea);
+			errorArea += difference / (completeArea * 2.0);
+			maxError = Math.max(difference / wantedArea, maxError);
+
+			for (int k = sites.neighbourStart[z]; k < sites.neighbourEnd[z]; k++) {
+				distanceSum += sites.distance(z, sites.neighbours[k]);
+				distanceCount++;
+			}
+		}
+		currentAreaError = errorArea;
+		currentErrorMax = maxError;
+		sitesWithoutPolygon = withoutPolygon;
+		averageNeighbourDistance = distanceSum / distanceCount;
+		statisticsSize = size;
+	}
+
 	private void fixNoPolygonSites() {
-		for (Site a : sites) {
-			if (a.getPolygon() == null) {
-				fixWeightsIfDominated(sites);
-				voroDiagram();
+		for (int z = 0; z < siteArrays.size; z++) {
+			if (siteArrays.polygon[z] == null) {
+				fixWeightsIfDominated(siteArrays);
+				voroDiagram(siteArrays);
 				break;
 			}
 		}
@@ -160,105 +307,77 @@ public class VoronoiCore {
 		return false;
 	}
 
-	private void checkPointsInPolygon(OpenList sites) {
+	private void checkPointsInPolygon(SiteArrays sites) {
 		boolean outside = false;
 		for (int i = 0; i < sites.size; i++) {
-			Site point = sites.array[i];
-			if (!clipPolygon.contains(point.x, point.y)) {
+			if (!clipRegion.contains(sites.x[i], sites.y[i])) {
 				outside = true;
-				Point2D p = clipPolygon.getInnerPoint();
-				point.setXY(p.x, p.y);
+				Point2D p = clipPolygon.getRandomInnerPoint(random);
+				sites.setXY(i, p.x, p.y);
 			}
 		}
 		if (outside)
 			fixWeightsIfDominated(sites);
 	}
 
-	private double computeAreaError(OpenList sites) {
-		double completeArea = clipPolygon.getArea();
-		double errorArea = 0;
-		for (int z = 0; z < sites.size; z++) {
-			Site point = sites.array[z];
-			PolygonSimple poly = point.getPolygon();
-			double currentArea = (poly == null) ? 0.0 : poly.getArea();
-			double wantedArea = completeArea * point.getPercentage();
-			errorArea += Math.abs(wantedArea - currentArea)
-						 / (completeArea * 2.0);
-		}
-		return errorArea;
-	}
-
-	private double computeMaxError(OpenList sites2) {
-		double completeArea = clipPolygon.getArea();
-		double maxError = 0;
-		for (int z = 0; z < sites.size; z++) {
-			Site point = sites.array[z];
-			PolygonSimple poly = point.getPolygon();
-			double currentArea = (poly == null) ? 0.0 : poly.getArea();
-			double wantedArea = completeArea * point.getPercentage();
-			double error = Math.abs(wantedArea - currentArea) / (wantedArea);
-			maxError = Math.max(error, maxError);
-		}
-		return maxError;
-	}
-
-	private void moveSites(OpenList sites) {
-		for (Site point : sites) {
-			PolygonSimple poly = point.getPolygon();
-			if (poly != null) {
-				Point2D centroid = poly.getCentroid();
-				double centroidX = centroid.getX();
-				double centroidY = centroid.getY();
-				if (clipPolygon.contains(centroidX, centroidY))
-					point.setXY(centroidX, centroidY);
+	/**
+	 * moves each site to the centroid of its cell, if that lies in the clip polygon, otherwise makes sure that the
+	 * site lies in the clip polygon, as in checkPointsInPolygon()
+	 */
+	private void moveSites(SiteArrays sites) {
+		int size = sites.size;
+		boolean outside = false;
+		for (int z = 0; z < size; z++) {
+			if (sites.polygon[z] != null && clipRegion.contains(siteCentroidX[z], siteCentroidY[z])) {
+				sites.setXY(z, siteCentroidX[z], siteCentroidY[z]);
+			} else if (!clipRegion.contains(sites.x[z], sites.y[z])) {
+				outside = true;
+				Point2D p = clipPolygon.getRandomInnerPoint(random);
+				sites.setXY(z, p.x, p.y);
 			}
 		}
+		if (outside)
+			fixWeightsIfDominated(sites);
 	}
 
-	private void adjustWeightsToBePositive(OpenList sites) {
+	private void adjustWeightsToBePositive(SiteArrays sites) {
 		double minWeight = 0;
 		for (int z = 0; z < sites.size; z++) {
-			Site s = sites.array[z];
-			if (s.getWeight() < minWeight)
-				minWeight = s.getWeight();
+			if (sites.weight[z] < minWeight)
+				minWeight = sites.weight[z];
 		}
 
 		for (int z = 0; z < sites.size; z++) {
-			Site s = sites.array[z];
-			double w = s.getWeight();
+			double w = sites.weight[z];
 			if (Double.isNaN(w))
 				w = 0.0001;
 			w -= minWeight;
 			if (w < 0.0001)
 				w = 0.0001;
-			s.setWeight(w);
+			sites.setWeight(z, w);
 		}
 
 	}
 
-	private void adaptWeightsSimple(OpenList sites) {
-		Site[] array = sites.array;
+	private void adaptWeightsSimple(SiteArrays sites) {
 		int size = sites.size;
-		Random rand = new Random(5);
-		double averageDistance = getGlobalAvgNeighbourDistance(sites);
+		// the statistics of the current diagram
+		double averageDistance = averageNeighbourDistance;
 		// double averageWeight=getAvgWeight(sites);
 		// averageDistance+=averageWeight;
-		double error = computeAreaError(sites);
+		double error = currentAreaError;
+		double completeArea = clipRegion.getArea();
 		for (int z = 0; z < size; z++) {
-			Site point = array[z];
-			PolygonSimple poly = point.getPolygon();
-
 			// if(poly==null)
 			// System.err.println(point.getWeight()+"\t"+error);
-			double completeArea = clipPolygon.getArea();
-			double currentArea = (poly == null) ? 0.0 : poly.getArea();
-			double wantedArea = completeArea * point.getPercentage();
+			double currentArea = siteArea[z];
+			double wantedArea = completeArea * sites.percentage[z];
 
 			double increase = wantedArea / currentArea;
 			if (currentArea == 0.0)
 				increase = 2.0;
 
-			double weight = point.getWeight();
+			double weight = sites.weight[z];
 
 			double step = 0;
 			double errorTransform = (-(error - 1) * (error - 1) + 1);
@@ -275,30 +394,25 @@ public class VoronoiCore {
 				weight -= step;
 			else if (increase > (1.0 + epsilon))
 				weight += step;
-			point.setWeight(weight);
-
-			// debug purpose
-			point.setLastIncrease(increase);
-
+			sites.setWeight(z, weight);
 		}
 	}
 
-	private void fixWeightsIfDominated(OpenList sites) {
-
-		for (Site s : sites) {
-			double weight = s.getWeight();
-			if (Double.isNaN(weight)) {
-				s.setWeight(0.00000000001);
+	private void fixWeightsIfDominated(SiteArrays sites) {
+		int size = sites.size;
+		for (int s = 0; s < size; s++) {
+			if (Double.isNaN(sites.weight[s])) {
+				sites.setWeight(s, 0.00000000001);
 			}
 		}
 
-		for (Site s : sites) {
-			for (Site q : sites) {
+		for (int s = 0; s < size; s++) {
+			for (int q = 0; q < size; q++) {
 				if (s != q) {
-					double distance = s.distance(q) * nearlyOne;
-					if (Math.sqrt(s.getWeight()) >= distance) {
+					double distance = sites.distance(s, q) * nearlyOne;
+					if (Math.sqrt(sites.weight[s]) >= distance) {
 						double weight = distance * distance;
-						q.setWeight(weight);
+						sites.setWeight(q, weight);
 					}
 				}
 			}
@@ -401,13 +515,22 @@ public class VoronoiCore {
 	 * Computes the diagram and sets the results
 	 */
 	public synchronized void voroDiagram() {
+		siteArrays.load(sites);
+		voroDiagram(siteArrays);
+		siteArrays.store(sites);
+		statisticsSize = -1;
+	}
+
+	/**
+	 * Computes the diagram of the site arrays and sets the results
+	 */
+	private void voroDiagram(SiteArrays sites) {
 		boolean worked = false;
 		while (!worked) {
 			try {
-				PowerDiagram diagram = new PowerDiagram();
-				diagram.setSites(sites);
-				diagram.setClipPoly(clipPolygon);
-				diagram.computeDiagram();
+				// the diagram is reused, so that its clipping buffers and hull vertices are only allocated once
+				diagram.setClipRegion(clipRegion);
+				diagram.computeDiagram(sites);
 				worked = true;
 			} catch (Exception e) {
 
@@ -445,14 +568,13 @@ public class VoronoiCore {
 		}
 	}
 
-	private void randomizePoints(OpenList sites) {
+	private void randomizePoints(SiteArrays sites) {
 
 		// double dist=getGlobalAvgNeighbourDistance(sites);
 		for (int i = 0; i < sites.size; i++) {
-			Site point = sites.array[i];
-			if (!clipPolygon.contains(point.x, point.y)) {
-				Point2D p = clipPolygon.getInnerPoint();
-				point.setXY(p.x, p.y);
+			if (!clipRegion.contains(sites.x[i], sites.y[i])) {
+				Point2D p = clipPolygon.getRandomInnerPoint(random);
+				sites.setXY(i, p.x, p.y);
 				continue;
 			}
 			// double x=0;
@@ -472,7 +594,7 @@ public class VoronoiCore {
 	synchronized protected void voroOrdinaryDiagram(OpenList sites) {
 
 		diagram.setSites(sites);
-		diagram.setClipPoly(clipPolygon);
+		diagram.setClipRegion(clipRegion);
 		try {
 			diagram.computeDiagram();
 		} catch (Exception e) {
@@ -486,6 +608,12 @@ public class VoronoiCore {
 			sites.array[0].setPolygon(clipPolygon.clone());
 			return;
 		}
+		if (settings.analyticSmallLayouts && AnalyticLayout.apply(sites, clipPolygon)) {
+			currentAreaError = 0;
+			currentErrorMax = 0;
+			notifyCells();
+			return;
+		}
 
 		shiftAndScaleZeroCenter();
 
@@ -493,16 +621,15 @@ public class VoronoiCore {
 		currentIteration = 0;
 		currentAreaError = 1.0;
 
-		checkPointsInPolygon(sites);
-		if (firstIteration) {
-			firstIteration = false;
-			voroDiagram();
-		}
+		siteArrays.load(sites);
+		checkPointsInPolygon(siteArrays);
+		voroDiagram(siteArrays);
+		collectStatistics();
 
 		boolean badResult = true;
 		while (true) {
-			iterateSimple();
-			badResult = checkBadResult(sites);
+			iterate();
+			badResult = (sitesWithoutPolygon > 0);
 
 			if (!badResult) {
 				if (settings.cancelAreaError
@@ -513,12 +640,17 @@ public class VoronoiCore {
 				if (settings.cancelMaxIterat
 					&& currentIteration > settings.maxIterat)
 					break;
+
+				// only a diagram in which every site has a cell is given back
+				if (stopCondition != null && stopCondition.getAsBoolean())
+					break;
 			}
 
 			// System.err.println("Iter: " + currentIteration
 			// + "\t AreaError: \t" + lastAreaError);
 		}
 
+		siteArrays.store(sites);
 		transformBackFromZero();
 
 		if (false) {
@@ -526,7 +658,13 @@ public class VoronoiCore {
 			System.err.println("Iteration: " + currentIteration + "\t MaxError: \t" + currentErrorMax);
 		}
 
-		// now its finished so give the cells a hint
+		notifyCells();
+	}
+
+	/**
+	 * now its finished so give the cells a hint
+	 */
+	private void notifyCells() {
 		for (Site site : sites) {
 			PolygonSimple poly = site.getPolygon();
 			if (site.cellObject != null) {
@@ -571,6 +709,8 @@ public class VoronoiCore {
 			b *= scale;
 			s.setX(a);
 			s.setY(b);
+			// weights are squared distances, they are scaled back in transformBackFromZero()
+			s.setWeight(s.getWeight() * scale * scale);
 		}
 	}
 
@@ -578,6 +718,7 @@ public class VoronoiCore {
 
 		clipPolygon.scale(1 / scale);
 		clipPolygon.translate(center.x, center.y);
+		setClipPolygon(clipPolygon);
 
 		for (Site s : sites) {
 			double a = s.getX();
@@ -19,7 +19,7 @@ import kn.uni.voronoitreemap.j2d.Site;
 
 import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 
 /**
@@ -32,7 +32,6 @@ public class OpenList implements Iterable<Site> {
 	public Site[] array;
 	public int size = 0;
 
-	private static final Random rand = new Random(1985);
 
 	public OpenList() {
 		this(10);
@@ -112,10 +111,15 @@ public class OpenList implements Iterable<Site> {
 
 	}
 
-	public void permutate() {
+	/**
+	 * permutes the sites randomly
+	 *
+	 * @param random random source, which the caller owns, so that different threads do not share one
+	 */
+	public void permutate(RandomGenerator random) {
 
 		for (int i = 0; i < size; ++i) {
-			int ra = rand.nextInt(size);
+			int ra = random.nextInt(size);
 			Site temp = array[ra];
 			array[ra] = array[i];
 			array[i] = temp;
@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.datastructure;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Site;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * sites stored as parallel primitive arrays, which the Voronoi core and the power diagram work on directly.
+ * <p>
+ * Site i has position (x[i],y[i]), weight weight[i], desired area percentage percentage[i] and lifted coordinate
+ * z[i]=x[i]^2+y[i]^2-weight[i]. After computing a diagram, polygon[i] is its cell, or null, and its neighbours are
+ * neighbours[neighbourStart[i]] ... neighbours[neighbourEnd[i]-1], given as site indices.
+ * Site objects are only used when loading from and storing to an {@link OpenList}.
+ */
+public class SiteArrays {
+	public double[] x;
+	public double[] y;
+	public double[] z;
+	public double[] weight;
+	public double[] percentage;
+	public PolygonSimple[] polygon;
+
+	public int[] neighbourStart;
+	public int[] neighbourEnd;
+	public int[] neighbours;
+	public int numberOfNeighbours;
+
+	public int size = 0;
+
+	public SiteArrays() {
+		this(10);
+	}
+
+	public SiteArrays(int capacity) {
+		x = new double[capacity];
+		y = new double[capacity];
+		z = new double[capacity];
+		weight = new double[capacity];
+		percentage = new double[capacity];
+		polygon = new PolygonSimple[capacity];
+		neighbourStart = new int[capacity];
+		neighbourEnd = new int[capacity];
+		neighbours = new int[6 * capacity];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (x.length < capacity) {
+			var newCapacity = Math.max(capacity, (x.length * 3) / 2 + 1);
+			x = Arrays.copyOf(x, newCapacity);
+			y = Arrays.copyOf(y, newCapacity);
+			z = Arrays.copyOf(z, newCapacity);
+			weight = Arrays.copyOf(weight, newCapacity);
+			percentage = Arrays.copyOf(percentage, newCapacity);
+			polygon = Arrays.copyOf(polygon, newCapacity);
+			neighbourStart = Arrays.copyOf(neighbourStart, newCapacity);
+			neighbourEnd = Arrays.copyOf(neighbourEnd, newCapacity);
+		}
+	}
+
+	/**
+	 * adds a site
+	 *
+	 * @return its index
+	 */
+	public int add(double x, double y, double weight, double percentage) {
+		ensureCapacity(size + 1);
+		this.x[size] = x;
+		this.y[size] = y;
+		this.weight[size] = weight;
+		this.percentage[size] = percentage;
+		this.z[size] = projectZ(x, y, weight);
+		polygon[size] = null;
+		neighbourStart[size] = neighbourEnd[size] = 0;
+		return size++;
+	}
+
+	public void clear() {
+		Arrays.fill(polygon, 0, size, null);
+		size = 0;
+		numberOfNeighbours = 0;
+	}
+
+	/*
+	 * return the dual point of the plane which is projected, see Aurenhammer,1987, Power Diagrams
+	 */
+	private static double projectZ(double x, double y, double weight) {
+		return x * x + y * y - weight;
+	}
+
+	public void setXY(int i, double x, double y) {
+		this.x[i] = x;
+		this.y[i] = y;
+		z[i] = projectZ(x, y, weight[i]);
+	}
+
+	public void setWeight(int i, double weight) {
+		this.weight[i] = weight;
+		z[i] = projectZ(x[i], y[i], weight);
+	}
+
+	public double distance(int i, int j) {
+		var dx = x[i] - x[j];
+		var dy = y[i] - y[j];
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * removes all cells and neighbours, before a new diagram is computed
+	 */
+	public void clearDiagram() {
+		Arrays.fill(polygon, 0, size, null);
+		Arrays.fill(neighbourStart, 0, size, 0);
+		Arrays.fill(neighbourEnd, 0, size, 0);
+		numberOfNeighbours = 0;
+	}
+
+	/**
+	 * starts the neighbour list of site i, which must be completed by calls to addNeighbour() before the neighbours
+	 * of another site are added
+	 */
+	public void startNeighbours(int i) {
+		neighbourStart[i] = neighbourEnd[i] = numberOfNeighbours;
+	}
+
+	public void addNeighbour(int i, int neighbour) {
+		if (numberOfNeighbours == neighbours.length)
+			neighbours = Arrays.copyOf(neighbours, 2 * neighbours.length + 6);
+		neighbours[numberOfNeighbours++] = neighbour;
+		neighbourEnd[i] = numberOfNeighbours;
+	}
+
+	/**
+	 * replaces the content by the given sites, including their cells and neighbours
+	 */
+	public void load(OpenList sites) {
+		clear();
+		ensureCapacity(sites.size);
+		var index = new IdentityHashMap<Site, Integer>();
+		for (var i = 0; i < sites.size; i++) {
+			var site = sites.array[i];
+			add(site.x, site.y, site.getWeight(), site.getPercentage());
+			polygon[i] = site.getPolygon();
+			index.put(site, i);
+		}
+		for (var i = 0; i < sites.size; i++) {
+			var list = sites.array[i].getNeighbours();
+			startNeighbours(i);
+			if (list != null) {
+				for (var neighbour : list) {
+					var j = index.get(neighbour);
+					if (j != null)
+						addNeighbour(i, j);
+				}
+			}
+		}
+	}
+
+	/**
+	 * writes positions, weights, cells and neighbours back to the given sites, which must be the ones loaded
+	 */
+	public void store(OpenList sites) {
+		for (var i = 0; i < size; i++) {
+			var site = sites.array[i];
+			site.setXYW(x[i], y[i], weight[i]);
+			site.setPolygon(polygon[i]);
+			var list = new ArrayList<Site>(neighbourEnd[i] - neighbourStart[i]);
+			for (var k = neighbourStart[i]; k < neighbourEnd[i]; k++)
+				list.add(sites.array[neighbours[k]]);
+			site.setNeighbours(list);
+		}
+	}
+}
@@ -13,19 +13,30 @@
 package kn.uni.voronoitreemap.diagram;
 
 
+import kn.uni.voronoitreemap.convexClip.ClipRegion;
+import kn.uni.voronoitreemap.convexClip.ConvexClipper;
 import kn.uni.voronoitreemap.convexHull.HEdge;
 import kn.uni.voronoitreemap.convexHull.JConvexHull;
 import kn.uni.voronoitreemap.convexHull.JFace;
 import kn.uni.voronoitreemap.convexHull.JVertex;
 import kn.uni.voronoitreemap.datastructure.OpenList;
+import kn.uni.voronoitreemap.datastructure.SiteArrays;
 import kn.uni.voronoitreemap.j2d.Point2D;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
-import kn.uni.voronoitreemap.j2d.Rectangle2D;
 import kn.uni.voronoitreemap.j2d.Site;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+import java.util.random.RandomGenerator;
 
 /**
  * Computes the PowerDiagram by using the convex hull of the transformed half
@@ -44,6 +55,29 @@ public class PowerDiagram {
 	private int amountPolygons;
 	protected List<JFace> facets = null;
 
+	/**
+	 * scratch buffers for clipping the cells, reused between cells and calls of computeDiagram
+	 */
+	private final ConvexClipper clipper = new ConvexClipper();
+	private ClipRegion clipRegion;
+
+	/**
+	 * for computing the diagram of site arrays: the hull vertices, which are reused between calls, the site index
+	 * of each hull vertex, which are permuted for the randomized incremental hull, and a scratch list of faces
+	 */
+	private JVertex[] vertexPool = new JVertex[0];
+	private int[] order = new int[0];
+	private final ArrayList<JFace> faceBuffer = new ArrayList<>();
+	private RandomGenerator random = new SplittableRandom(1985);
+
+	/**
+	 * optional helpers for clipping the cells in parallel, and the number of threads that may currently be used
+	 */
+	private static final int MIN_SITES_PER_TASK = 32;
+	private Executor executor;
+	private IntSupplier parallelism;
+	private PolygonSimple[] cells = new PolygonSimple[0];
+
 	// set of sites which forms a rectangle that is big enough to bound a
 	// diagram with creating a bisector in the clipping polygon
 	Site s1;
@@ -72,15 +106,48 @@ public class PowerDiagram {
 	}
 
 	public void setClipPoly(PolygonSimple polygon) {
-		clipPoly = polygon;
-		Rectangle2D bb = polygon.getBounds2D();
+		setClipRegion(ClipRegion.create(polygon));
+	}
+
+	/**
+	 * sets the random source used for the insertion order of the hull, which must not be shared with other threads
+	 *
+	 * @param random random source
+	 */
+	public void setRandom(RandomGenerator random) {
+		this.random = random;
+	}
+
+	/**
+	 * lets the cells be clipped in parallel. The calling thread always takes part, and helper tasks that start
+	 * after all cells are taken do nothing, so the executor may be busy with other work.
+	 *
+	 * @param executor    runs helper tasks, or null, to clip on the calling thread only
+	 * @param parallelism the number of threads to use for the next diagram, asked on each computation
+	 */
+	public void setParallelism(Executor executor, IntSupplier parallelism) {
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets the clipping polygon by its precomputed region. Setting the same region again does nothing, so the region
+	 * can be passed on every computation without recomputing the border sites.
+	 *
+	 * @param region
+	 */
+	public void setClipRegion(ClipRegion region) {
+		if (region == clipRegion)
+			return;
+		clipRegion = region;
+		clipPoly = region.getPolygon();
 		// create sites on a rectangle which is big enough to not create
 		// bisectors which intersect the clippingPolygon
-		double minX = bb.getMinX();
-		double minY = bb.getMinY();
+		double minX = region.getMinX();
+		double minY = region.getMinY();
 
-		double width = bb.getWidth();
-		double height = bb.getHeight();
+		double width = region.getMaxX() - minX;
+		double height = region.getMaxY() - minY;
 
 		s1 = new Site(minX - width, minY - height);
 		s2 = new Site(minX + 2 * width, minY - height);
@@ -98,6 +165,10 @@ public class PowerDiagram {
 		return clipPoly;
 	}
 
+	public ClipRegion getClipRegion() {
+		return clipRegion;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 *
@@ -106,7 +177,7 @@ public class PowerDiagram {
 	public void computeDiagram() {
 
 		if (sites.size > 0) {
-			sites.permutate();
+			sites.permutate(random);
 
 			hull = new JConvexHull();
 			Site[] array = sites.array;
@@ -196,40 +267,12 @@ public class PowerDiagram {
 						// faces around the vertices which correspond to the
 						// polygon corner points
 						ArrayList<JFace> faces = getFacesOfDestVertex(edge);
-						PolygonSimple poly = new PolygonSimple();
-						double lastX = Double.NaN;
-						double lastY = Double.NaN;
-						double dx = 1;
-						double dy = 1;
-						for (JFace face : faces) {
-							Point2D point = face
-									.getDualPoint();
-							double x1 = point.getX();
-							double y1 = point.getY();
-							if (!Double.isNaN(lastX)) {
-
-								dx = lastX - x1;
-								dy = lastY - y1;
-								if (dx < 0) {
-									dx = -dx;
-								}
-								if (dy < 0) {
-									dy = -dy;
-								}
-							}
-							if (dx > numericError || dy > numericError) {
-
-								poly.add(x1, y1);
-								lastX = x1;
-								lastY = y1;
-							}
-
-						}
+						PolygonSimple poly = dualPolygon(faces);
 						site.nonClippedPolyon = poly;
 
 						if (!site.isDummy) {
 //							try {
-							site.setPolygon(clipPoly.convexClip(poly));
+							site.setPolygon(clipCell(poly));
 
 //							} catch (Exception ex) {
 //
@@ -246,6 +289,192 @@ public class PowerDiagram {
 		}
 	}
 
+	/**
+	 * The cell of a site is formed by the dual points of the faces around its vertex, skipping points that nearly
+	 * coincide with the previous one
+	 */
+	private static PolygonSimple dualPolygon(List<JFace> faces) {
+		PolygonSimple poly = new PolygonSimple(faces.size());
+		double lastX = Double.NaN;
+		double lastY = Double.NaN;
+		double dx = 1;
+		double dy = 1;
+		for (JFace face : faces) {
+			Point2D point = face.getDualPoint();
+			double x1 = point.getX();
+			double y1 = point.getY();
+			if (!Double.isNaN(lastX)) {
+				dx = Math.abs(lastX - x1);
+				dy = Math.abs(lastY - y1);
+			}
+			if (dx > numericError || dy > numericError) {
+				poly.add(x1, y1);
+				lastX = x1;
+				lastY = y1;
+			}
+		}
+		return poly;
+	}
+
+	/**
+	 * Computes the diagram of the given site arrays, working directly on the arrays. The cell and the neighbours of
+	 * each site are stored in the arrays, sites without a cell get polygon null. The clip polygon or region must
+	 * have been set.
+	 *
+	 * @param sites the sites
+	 */
+	public void computeDiagram(SiteArrays sites) {
+		int size = sites.size;
+		sites.clearDiagram();
+		if (size == 0)
+			return;
+
+		if (vertexPool.length < size + 4) {
+			int capacity = Math.max(size + 4, (vertexPool.length * 3) / 2);
+			int old = vertexPool.length;
+			vertexPool = Arrays.copyOf(vertexPool, capacity);
+			for (int i = old; i < capacity; i++)
+				vertexPool[i] = new JVertex(0, 0, 0);
+			order = new int[capacity];
+		}
+
+		// random insertion order for the randomized incremental hull
+		for (int i = 0; i < size; i++)
+			order[i] = i;
+		for (int i = 0; i < size; ++i) {
+			int ra = random.nextInt(size);
+			int temp = order[ra];
+			order[ra] = order[i];
+			order[i] = temp;
+		}
+
+		hull = new JConvexHull();
+		for (int k = 0; k < size; k++) {
+			int i = order[k];
+			if (Double.isNaN(sites.weight[i]))
+				throw new RuntimeException("Weight of a Site may not be NaN.");
+			JVertex vertex = vertexPool[k];
+			vertex.set(sites.x[i], sites.y[i], sites.z[i]);
+			hull.addVertex(vertex);
+		}
+		// the border sites come last, vertices with index >= size are not sites
+		Site[] border = {s1, s2, s3, s4};
+		for (int k = 0; k < 4; k++) {
+			JVertex vertex = vertexPool[size + k];
+			vertex.set(border[k].x, border[k].y, border[k].z);
+			hull.addVertex(vertex);
+		}
+
+		facets = hull.compute();
+
+		int tasks = (executor == null ? 1 : Math.min(parallelism.getAsInt(), size / MIN_SITES_PER_TASK));
+		if (tasks > 1 && cells.length < size)
+			cells = new PolygonSimple[Math.max(size, (cells.length * 3) / 2)];
+
+		boolean[] verticesVisited = new boolean[hull.getVertexCount()];
+		for (JFace facet : facets) {
+			if (facet.isVisibleFromBelow()) {
+				for (int e = 0; e < 3; e++) {
+					HEdge edge = facet.getEdge(e);
+					int k = edge.getDest().getIndex();
+					if (!verticesVisited[k]) {
+						verticesVisited[k] = true;
+						if (k < size) {
+							int i = order[k];
+							collectFacesOfDestVertex(edge, sites, i, size);
+							PolygonSimple cell = dualPolygon(faceBuffer);
+							if (tasks > 1)
+								cells[i] = cell;
+							else
+								sites.polygon[i] = clipRegion.clip(cell.getXPoints(), cell.getYPoints(), cell.getNumPoints(), clipper);
+						}
+					}
+				}
+			}
+		}
+		if (tasks > 1)
+			clipCellsInParallel(sites, tasks);
+	}
+
+	/**
+	 * clips the collected cells in the given number of chunks. The calling thread and the helpers take chunks until
+	 * none are left, the area and centroid of each clipped cell are computed on the way
+	 */
+	private void clipCellsInParallel(SiteArrays sites, int tasks) {
+		int size = sites.size;
+		int chunkSize = (size + tasks - 1) / tasks;
+		AtomicInteger nextChunk = new AtomicInteger();
+		CountDownLatch chunksDone = new CountDownLatch(tasks);
+		AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+		Runnable worker = () -> {
+			ConvexClipper workerClipper = new ConvexClipper();
+			int chunk;
+			while ((chunk = nextChunk.getAndIncrement()) < tasks) {
+				try {
+					for (int i = chunk * chunkSize; i < Math.min(size, (chunk + 1) * chunkSize); i++) {
+						PolygonSimple cell = cells[i];
+						if (cell != null) {
+							cells[i] = null;
+							PolygonSimple clipped = clipRegion.clip(cell.getXPoints(), cell.getYPoints(), cell.getNumPoints(), workerClipper);
+							if (clipped != null)
+								clipped.getCentroid();
+							sites.polygon[i] = clipped;
+						}
+					}
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+				} finally {
+					chunksDone.countDown();
+				}
+			}
+		};
+		try {
+			for (int t = 1; t < tasks; t++)
+				executor.execute(worker);
+		} catch (RejectedExecutionException ignored) {
+			// the calling thread does the remaining chunks
+		}
+		worker.run();
+		try {
+			chunksDone.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		if (failure.get() != null)
+			throw failure.get();
+	}
+
+	/**
+	 * Collects the faces visible from below around the destination vertex of the given edge in the face buffer,
+	 * and the neighbours of site i in the site arrays
+	 */
+	private void collectFacesOfDestVertex(HEdge edge, SiteArrays sites, int i, int size) {
+		faceBuffer.clear();
+		sites.startNeighbours(i);
+		HEdge previous = edge;
+		do {
+			previous = previous.getTwin().getPrev();
+			int k = previous.getOrigin().getIndex();
+			if (k < size)
+				sites.addNeighbour(i, order[k]);
+			JFace iFace = previous.getiFace();
+			if (iFace.isVisibleFromBelow())
+				faceBuffer.add(iFace);
+		} while (previous != edge);
+	}
+
+	/**
+	 * Clips the given cell with the half planes of the clipping region.
+	 *
+	 * @param cell
+	 * @return clipped cell, or null, if the cell lies outside of the clipping polygon
+	 */
+	private PolygonSimple clipCell(PolygonSimple cell) {
+		return clipRegion.clip(cell.getXPoints(), cell.getYPoints(), cell.getNumPoints(), clipper);
+	}
+
 	/**
 	 * Return the faces which are visible from below
 	 *
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.j2d;
+
+/**
+ * kernels for the area, centroid and point containment of polygons given by coordinate arrays, which are on the
+ * innermost loop of the Voronoi core.
+ * <p>
+ * If the library was built with the Maven profile vector and the incubating module jdk.incubator.vector is present
+ * (that is, the JVM was started with --add-modules jdk.incubator.vector), implementations using the Vector API are
+ * used, otherwise scalar ones. The scalar kernels can be forced by setting the system property voronoi.kernels=scalar.
+ * The vector implementation is only loaded when selected, so neither building nor running the scalar path needs
+ * the module.
+ */
+public abstract class PolygonKernels {
+	/**
+	 * gets the kernels selected for this JVM
+	 */
+	public static PolygonKernels getInstance() {
+		return Holder.INSTANCE;
+	}
+
+	/**
+	 * lazily initialized on first use
+	 */
+	private static final class Holder {
+		private static final PolygonKernels INSTANCE = select();
+	}
+
+	private static PolygonKernels select() {
+		if (!"scalar".equals(System.getProperty("voronoi.kernels")) && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+			try {
+				return (PolygonKernels) Class.forName("kn.uni.voronoitreemap.j2d.VectorPolygonKernels").getDeclaredConstructor().newInstance();
+			} catch (Throwable ignored) {
+			}
+		}
+		return new ScalarPolygonKernels();
+	}
+
+	/**
+	 * @return name of the implementation
+	 */
+	public abstract String getName();
+
+	/**
+	 * computes the signed area of the polygon, which is positive if the points are in counterclockwise order
+	 *
+	 * @param x x-coordinates
+	 * @param y y-coordinates
+	 * @param n number of points
+	 * @return signed area
+	 */
+	public double signedArea(double[] x, double[] y, int n) {
+		return signedArea(x, y, 0, n);
+	}
+
+	/**
+	 * computes the signed area of the polygon given by the points offset ... offset+n-1, for example, a part of a
+	 * polygon with several parts
+	 *
+	 * @param x      x-coordinates
+	 * @param y      y-coordinates
+	 * @param offset index of the first point
+	 * @param n      number of points
+	 * @return signed area
+	 */
+	public abstract double signedArea(double[] x, double[] y, int offset, int n);
+
+	/**
+	 * computes the centroid of the polygon
+	 *
+	 * @param x      x-coordinates
+	 * @param y      y-coordinates
+	 * @param n      number of points
+	 * @param result receives the x- and y-coordinate of the centroid and the signed area
+	 */
+	public void centroid(double[] x, double[] y, int n, double[] result) {
+		centroid(x, y, 0, n, result);
+	}
+
+	/**
+	 * computes the centroid of the polygon given by the points offset ... offset+n-1
+	 *
+	 * @param x      x-coordinates
+	 * @param y      y-coordinates
+	 * @param offset index of the first point
+	 * @param n      number of points
+	 * @param result receives the x- and y-coordinate of the centroid and the signed area
+	 */
+	public abstract void centroid(double[] x, double[] y, int offset, int n, double[] result);
+
+	/**
+	 * tests for each of the given points whether it is contained in the polygon, by a ray cast per point
+	 *
+	 * @param x      x-coordinates of polygon
+	 * @param y      y-coordinates of polygon
+	 * @param n      number of points of polygon
+	 * @param px     x-coordinates of points to test
+	 * @param py     y-coordinates of points to test
+	 * @param m      number of points to test
+	 * @param result receives true for each point inside the polygon
+	 */
+	public abstract void contains(double[] x, double[] y, int n, double[] px, double[] py, int m, boolean[] result);
+}
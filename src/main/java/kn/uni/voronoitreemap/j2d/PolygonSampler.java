@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.j2d;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * samples points uniformly from a polygon, without rejection.
+ * <p>
+ * The polygon is triangulated once, part by part, as a fan for convex polygons and by ear clipping otherwise, and the cumulative
+ * triangle areas are stored. A sample picks a triangle by binary search on the cumulative areas and then a uniform
+ * point in that triangle, so it takes logarithmic time, however thin the polygon is.
+ */
+public class PolygonSampler {
+	/**
+	 * triangle k has the points (ax[k],ay[k]), (bx[k],by[k]) and (cx[k],cy[k])
+	 */
+	private final double[] ax;
+	private final double[] ay;
+	private final double[] bx;
+	private final double[] by;
+	private final double[] cx;
+	private final double[] cy;
+	/**
+	 * cumulative[k] is the total area of triangles 0..k
+	 */
+	private final double[] cumulative;
+	private final int numberOfTriangles;
+
+	private PolygonSampler(double[] ax, double[] ay, double[] bx, double[] by, double[] cx, double[] cy, double[] cumulative, int numberOfTriangles) {
+		this.ax = ax;
+		this.ay = ay;
+		this.bx = bx;
+		this.by = by;
+		this.cx = cx;
+		this.cy = cy;
+		this.cumulative = cumulative;
+		this.numberOfTriangles = numberOfTriangles;
+	}
+
+	/**
+	 * creates a sampler for the given polygon
+	 *
+	 * @param polygon the polygon
+	 * @return sampler, or null, if the polygon could not be triangulated, e.g. because it is self-intersecting
+	 */
+	public static PolygonSampler create(PolygonSimple polygon) {
+		if (polygon.getNumParts() > 1)
+			return createForParts(polygon);
+		var n = polygon.getNumPoints();
+		if (n < 3)
+			return null;
+		var x = polygon.getXPoints();
+		var y = polygon.getYPoints();
+
+		var m = n - 2;
+		var ax = new double[m];
+		var ay = new double[m];
+		var bx = new double[m];
+		var by = new double[m];
+		var cx = new double[m];
+		var cy = new double[m];
+		var cumulative = new double[m];
+		var count = 0;
+
+		if (polygon.isConvex()) {
+			for (var i = 1; i + 1 < n; i++) {
+				ax[count] = x[0];
+				ay[count] = y[0];
+				bx[count] = x[i];
+				by[count] = y[i];
+				cx[count] = x[i + 1];
+				cy[count++] = y[i + 1];
+			}
+		} else {
+			// ear clipping on a counterclockwise copy of the point indices
+			var signedArea = polygon.getSignedArea();
+			var index = new int[n];
+			for (var i = 0; i < n; i++)
+				index[i] = (signedArea > 0 ? i : n - 1 - i);
+			var remaining = n;
+			var i = 0;
+			var failures = 0;
+			while (remaining > 3) {
+				var prev = index[(i + remaining - 1) % remaining];
+				var curr = index[i];
+				var next = index[(i + 1) % remaining];
+				if (isEar(x, y, index, remaining, prev, curr, next)) {
+					ax[count] = x[prev];
+					ay[count] = y[prev];
+					bx[count] = x[curr];
+					by[count] = y[curr];
+					cx[count] = x[next];
+					cy[count++] = y[next];
+					System.arraycopy(index, i + 1, index, i, remaining - i - 1);
+					remaining--;
+					if (i == remaining)
+						i = 0;
+					failures = 0;
+				} else {
+					if (++failures > remaining)
+						return null;
+					i = (i + 1) % remaining;
+				}
+			}
+			ax[count] = x[index[0]];
+			ay[count] = y[index[0]];
+			bx[count] = x[index[1]];
+			by[count] = y[index[1]];
+			cx[count] = x[index[2]];
+			cy[count++] = y[index[2]];
+		}
+
+		var total = 0.0;
+		for (var k = 0; k < count; k++) {
+			total += 0.5 * Math.abs((bx[k] - ax[k]) * (cy[k] - ay[k]) - (by[k] - ay[k]) * (cx[k] - ax[k]));
+			cumulative[k] = total;
+		}
+		// the triangles must cover the polygon exactly, otherwise the polygon is not simple
+		var area = polygon.getArea();
+		if (!(total > 0) || Math.abs(total - area) > 1E-9 * Math.max(1.0, area))
+			return null;
+		return new PolygonSampler(ax, ay, bx, by, cx, cy, cumulative, count);
+	}
+
+	/**
+	 * creates a sampler for a polygon that consists of several parts, by triangulating each part separately
+	 */
+	private static PolygonSampler createForParts(PolygonSimple polygon) {
+		var samplers = new PolygonSampler[polygon.getNumParts()];
+		var m = 0;
+		for (var part = 0; part < samplers.length; part++) {
+			samplers[part] = create(polygon.getPart(part));
+			if (samplers[part] == null)
+				return null;
+			m += samplers[part].numberOfTriangles;
+		}
+		var ax = new double[m];
+		var ay = new double[m];
+		var bx = new double[m];
+		var by = new double[m];
+		var cx = new double[m];
+		var cy = new double[m];
+		var cumulative = new double[m];
+		var count = 0;
+		var total = 0.0;
+		for (var sampler : samplers) {
+			var k = sampler.numberOfTriangles;
+			System.arraycopy(sampler.ax, 0, ax, count, k);
+			System.arraycopy(sampler.ay, 0, ay, count, k);
+			System.arraycopy(sampler.bx, 0, bx, count, k);
+			System.arraycopy(sampler.by, 0, by, count, k);
+			System.arraycopy(sampler.cx, 0, cx, count, k);
+			System.arraycopy(sampler.cy, 0, cy, count, k);
+			for (var i = 0; i < k; i++)
+				cumulative[count + i] = total + sampler.cumulative[i];
+			total += sampler.cumulative[k - 1];
+			count += k;
+		}
+		return new PolygonSampler(ax, ay, bx, by, cx, cy, cumulative, count);
+	}
+
+	/**
+	 * is the counterclockwise corner prev-curr-next convex, without any other remaining point inside the triangle?
+	 * Points that coincide with a corner of the triangle, such as the two ends of a bridge to a hole, are ignored.
+	 */
+	private static boolean isEar(double[] x, double[] y, int[] index, int remaining, int prev, int curr, int next) {
+		if (cross(x[prev], y[prev], x[curr], y[curr], x[next], y[next]) <= 0)
+			return false;
+		for (var k = 0; k < remaining; k++) {
+			var p = index[k];
+			if (p == prev || p == curr || p == next
+				|| (x[p] == x[prev] && y[p] == y[prev]) || (x[p] == x[curr] && y[p] == y[curr]) || (x[p] == x[next] && y[p] == y[next]))
+				continue;
+			if (cross(x[prev], y[prev], x[curr], y[curr], x[p], y[p]) >= 0
+				&& cross(x[curr], y[curr], x[next], y[next], x[p], y[p]) >= 0
+				&& cross(x[next], y[next], x[prev], y[prev], x[p], y[p]) >= 0)
+				return false;
+		}
+		return true;
+	}
+
+	private static double cross(double ax, double ay, double bx, double by, double px, double py) {
+		return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+	}
+
+	/**
+	 * gets a uniformly distributed random point in the polygon
+	 *
+	 * @param random random source
+	 * @return random point
+	 */
+	public Point2D sample(RandomGenerator random) {
+		return pointInTriangle(findTriangle(random.nextDouble() * cumulative[numberOfTriangles - 1]), random.nextDouble(), random.nextDouble());
+	}
+
+	/**
+	 * gets k random points in the polygon. The points are stratified by area, that is, the i-th point is drawn from
+	 * the i-th of k slices of equal area, so that they are spread evenly across the polygon, and are then returned in
+	 * random order. A slice covers consecutive triangles, and within a triangle the part from its first corner up to
+	 * a line parallel to the opposite side, so that it also stratifies the points within large triangles.
+	 *
+	 * @param random random source
+	 * @param k      number of points
+	 * @return random points
+	 */
+	public Point2D[] sample(RandomGenerator random, int k) {
+		var points = new Point2D[k];
+		var total = cumulative[numberOfTriangles - 1];
+		var triangle = 0;
+		for (var i = 0; i < k; i++) {
+			var target = (i + random.nextDouble()) / k * total;
+			// targets are increasing, so the triangles are found in a single pass
+			while (triangle + 1 < numberOfTriangles && cumulative[triangle] < target)
+				triangle++;
+			var before = (triangle == 0 ? 0 : cumulative[triangle - 1]);
+			var fraction = (target - before) / (cumulative[triangle] - before);
+			points[i] = pointInTriangleSlice(triangle, Math.max(0, Math.min(1, fraction)), random.nextDouble());
+		}
+		for (var i = k - 1; i > 0; i--) {
+			var j = random.nextInt(i + 1);
+			var tmp = points[i];
+			points[i] = points[j];
+			points[j] = tmp;
+		}
+		return points;
+	}
+
+	private int findTriangle(double target) {
+		var low = 0;
+		var high = numberOfTriangles - 1;
+		while (low < high) {
+			var middle = (low + high) >>> 1;
+			if (cumulative[middle] < target)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * uniform point in triangle k, reflecting (s,t) into the lower half of the unit square
+	 */
+	private Point2D pointInTriangle(int k, double s, double t) {
+		if (s + t > 1) {
+			s = 1 - s;
+			t = 1 - t;
+		}
+		return new Point2D(ax[k] + s * (bx[k] - ax[k]) + t * (cx[k] - ax[k]), ay[k] + s * (by[k] - ay[k]) + t * (cy[k] - ay[k]));
+	}
+
+	/**
+	 * point in triangle k such that the fraction of the area of the triangle that lies on the side of its first corner
+	 * is the given one: the point lies on the segment parallel to the side opposite the first corner that cuts off
+	 * this fraction, at the given relative position along that segment
+	 */
+	private Point2D pointInTriangleSlice(int k, double fraction, double position) {
+		var scale = Math.sqrt(fraction);
+		var s = scale * (1 - position);
+		var t = scale * position;
+		return new Point2D(ax[k] + s * (bx[k] - ax[k]) + t * (cx[k] - ax[k]), ay[k] + s * (by[k] - ay[k]) + t * (cy[k] - ay[k]));
+	}
+
+	public int getNumberOfTriangles() {
+		return numberOfTriangles;
+	}
+}
@@ -12,26 +12,29 @@
  ******************************************************************************/
 package kn.uni.voronoitreemap.j2d;
 
-import kn.uni.voronoitreemap.convexClip.ConvexClip;
-import kn.uni.voronoitreemap.convexClip.cVertex;
-import kn.uni.voronoitreemap.convexClip.cVertexList;
+import kn.uni.voronoitreemap.convexClip.ConvexClipper;
 import kn.uni.voronoitreemap.helper.Geometry;
 
 import java.util.Arrays;
 import java.util.Random;
+import java.util.random.RandomGenerator;
 
 
 /**
  * Implements a simple polygon with one continous region, by using two double arrays.
+ * <p>
+ * A polygon may also consist of several disjoint parts, each a closed ring of consecutive points, such as the
+ * intersection of a convex cell with a non-convex clip region. Area, centroid and containment are then taken over
+ * all parts.
  *
  * @author Arlind Nocaj
  */
 public class PolygonSimple implements Cloneable {
 
 	/**
-	 * Used for generation of a random point in a polygon.
+	 * Used for generation of a random point in a polygon, created on first use.
 	 */
-	private Random seed = new Random(5);
+	private Random seed;
 
 	/**
 	 * centroid of the polygon is stored for faster access, once it is computed
@@ -39,6 +42,17 @@ public class PolygonSimple implements Cloneable {
 	private Point2D centroid;
 	private double area = -1;
 	private kn.uni.voronoitreemap.j2d.Rectangle2D bounds;
+	/**
+	 * whether the polygon is convex, null, if not known yet. The orientation is 1 for counterclockwise and -1 for
+	 * clockwise convex polygons, and 0, if not known yet
+	 */
+	private Boolean convex;
+	private int orientation;
+	/**
+	 * triangulation used for sampling inner points, created on first use
+	 */
+	private PolygonSampler sampler;
+	private boolean samplerComputed;
 
 	/**
 	 * Stores the orginal polygon result, without shrinking
@@ -54,6 +68,10 @@ public class PolygonSimple implements Cloneable {
 	 * y-coordinates
 	 */
 	private int length = 0;
+	/**
+	 * start index of each part, null, if the polygon consists of a single part
+	 */
+	private int[] partStart;
 
 	private int level;
 
@@ -102,20 +120,23 @@ public class PolygonSimple implements Cloneable {
 	}
 
 	/**
-	 * Replaces the pointers of the coordinate arrays to show to the given coordinate arrays.
+	 * Copies the coordinates, parts and convexity flag of the given polygon, but not its original polygon.
 	 */
 	public PolygonSimple(PolygonSimple that) {
 		bounds = null;
 		centroid = null;
 		this.oldPolygon = null;
-		this.seed = that.seed;
 		this.length = that.length;
 		this.x = Arrays.copyOf(that.x, length);
 		this.y = Arrays.copyOf(that.y, length);
+		this.partStart = (that.partStart == null ? null : that.partStart.clone());
+		this.convex = that.convex;
+		this.orientation = that.orientation;
 	}
 
 	/**
-	 * tests whether the given point is contained in the polygon (linear time).
+	 * tests whether the given point is contained in the polygon (logarithmic time for convex polygons, linear time
+	 * otherwise).
 	 */
 
 	public boolean contains(double inX, double inY) {
@@ -125,17 +146,87 @@ public class PolygonSimple implements Cloneable {
 		if (!bounds.contains(inX, inY)) {
 			return false;
 		}
+		if (isConvex())
+			return convexContains(inX, inY);
 		// Take a horizontal ray from (inX,inY) to the right.
 		// If ray across the polygon edges an odd # of times, the point is
 		// inside.
-		for (int i = 0, j = length - 1; i < length; j = i++) {
-			if ((((y[i] <= inY) && (inY < y[j]) || ((y[j] <= inY) && (inY < y[i]))) && (inX < (x[j] - x[i])
-																							  * (inY - y[i]) / (y[j] - y[i]) + x[i])))
-				contains = !contains;
+		for (var part = 0; part < getNumParts(); part++) {
+			var end = getPartEnd(part);
+			for (int i = getPartStart(part), j = end - 1; i < end; j = i++) {
+				if ((((y[i] <= inY) && (inY < y[j]) || ((y[j] <= inY) && (inY < y[i]))) && (inX < (x[j] - x[i])
+																								  * (inY - y[i]) / (y[j] - y[i]) + x[i])))
+					contains = !contains;
+			}
 		}
 		return contains;
 	}
 
+	/**
+	 * tests for each of the given points whether it is contained in the polygon, in one pass over the edges of the
+	 * polygon per batch of points
+	 *
+	 * @param px     x-coordinates of points
+	 * @param py     y-coordinates of points
+	 * @param m      number of points
+	 * @param result receives true for each point that is contained
+	 */
+	public void contains(double[] px, double[] py, int m, boolean[] result) {
+		if (partStart == null)
+			PolygonKernels.getInstance().contains(x, y, length, px, py, m, result);
+		else {
+			for (var i = 0; i < m; i++)
+				result[i] = contains(px[i], py[i]);
+		}
+	}
+
+	/**
+	 * tests whether the given point is contained in this convex polygon, in logarithmic time: a binary search
+	 * over the fan of triangles at the first point finds the wedge that contains the point,
+	 * which is then tested against the edge that closes the wedge
+	 */
+	private boolean convexContains(double inX, double inY) {
+		if (orientation == 0)
+			orientation = (getSignedArea() > 0 ? 1 : -1);
+		return convexContains(x, y, length, orientation, inX, inY);
+	}
+
+	/**
+	 * tests whether the given point is contained in a convex polygon, in logarithmic time, see
+	 * {@link #contains(double, double)}
+	 *
+	 * @param x           x-coordinates of the convex polygon
+	 * @param y           y-coordinates of the convex polygon
+	 * @param length      number of points, at least 3
+	 * @param orientation 1, if the polygon is oriented counterclockwise, -1 otherwise
+	 * @param inX         x-coordinate of the point
+	 * @param inY         y-coordinate of the point
+	 * @return true, if the point lies in the polygon or on its boundary
+	 */
+	public static boolean convexContains(double[] x, double[] y, int length, int orientation, double inX, double inY) {
+		var x0 = x[0];
+		var y0 = y[0];
+		if (orientation * cross(x0, y0, x[1], y[1], inX, inY) < 0 || orientation * cross(x0, y0, x[length - 1], y[length - 1], inX, inY) > 0)
+			return false;
+		var low = 1;
+		var high = length - 1;
+		while (high - low > 1) {
+			var middle = (low + high) >>> 1;
+			if (orientation * cross(x0, y0, x[middle], y[middle], inX, inY) >= 0)
+				low = middle;
+			else
+				high = middle;
+		}
+		return orientation * cross(x[low], y[low], x[high], y[high], inX, inY) >= 0;
+	}
+
+	/**
+	 * cross product of (b-a) and (p-a), positive, if p lies to the left of the line from a to b
+	 */
+	private static double cross(double ax, double ay, double bx, double by, double px, double py) {
+		return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+	}
+
 	/**
 	 * {@link #contains(double, double, double, double)}
 	 */
@@ -168,7 +259,6 @@ public class PolygonSimple implements Cloneable {
 	}
 
 	public Rectangle2D getBounds2D() {
-		bounds = null;
 		if (bounds == null) {
 			getBounds();
 		}
@@ -198,15 +288,15 @@ public class PolygonSimple implements Cloneable {
 	}
 
 	/**
-	 * Returns the bounding rectangle of this polygon.
+	 * Returns the bounding rectangle of this polygon. It is cached until the polygon is modified,
+	 * so it must not be changed by the caller.
 	 */
 	public Rectangle2D getBounds() {
-		bounds = null;
 		if (bounds == null) {
 			double xmin = Double.MAX_VALUE;
 			double ymin = Double.MAX_VALUE;
-			double xmax = Double.MIN_VALUE;
-			double ymax = Double.MIN_VALUE;
+			double xmax = -Double.MAX_VALUE;
+			double ymax = -Double.MAX_VALUE;
 
 			for (int i = 0; i < length; i++) {
 				double x = this.x[i];
@@ -234,6 +324,54 @@ public class PolygonSimple implements Cloneable {
 		return length;
 	}
 
+	/**
+	 * Return the number of parts of this polygon, see {@link #startNewPart()}.
+	 */
+	public int getNumParts() {
+		return (partStart == null ? 1 : partStart.length);
+	}
+
+	/**
+	 * Returns the index of the first point of the given part.
+	 */
+	public int getPartStart(int part) {
+		return (partStart == null ? 0 : partStart[part]);
+	}
+
+	/**
+	 * Returns the index after the last point of the given part.
+	 */
+	public int getPartEnd(int part) {
+		return (partStart == null || part + 1 == partStart.length ? length : partStart[part + 1]);
+	}
+
+	/**
+	 * Returns a new polygon that consists of the points of the given part.
+	 */
+	public PolygonSimple getPart(int part) {
+		var start = getPartStart(part);
+		var end = getPartEnd(part);
+		return new PolygonSimple(Arrays.copyOfRange(x, start, end), Arrays.copyOfRange(y, start, end));
+	}
+
+	/**
+	 * Starts a new part of the polygon, so that the points added subsequently form a separate closed ring.
+	 * The parts must be disjoint. A polygon with several parts is never convex.
+	 */
+	public void startNewPart() {
+		if (length == 0 || (partStart != null && partStart[partStart.length - 1] == length))
+			return;
+		if (partStart == null)
+			partStart = new int[]{0, length};
+		else {
+			partStart = Arrays.copyOf(partStart, partStart.length + 1);
+			partStart[partStart.length - 1] = length;
+		}
+		clearCacheOnly();
+		convex = false;
+		orientation = 0;
+	}
+
 	/**
 	 * Adds a point to the polygon. Extends the corresponding array if necessary.
 	 */
@@ -250,6 +388,8 @@ public class PolygonSimple implements Cloneable {
 		this.x[length] = x;
 		this.y[length] = y;
 		length++;
+		clearCacheOnly();
+		convex = null;
 
 	}
 
@@ -281,10 +421,18 @@ public class PolygonSimple implements Cloneable {
 		clearCacheOnly();
 	}
 
+	/**
+	 * clears the cached centroid, bounds, area and orientation. Must be called after modifying the coordinate arrays
+	 * directly. The convexity flag is kept, as all modifications done by this class preserve it, except for adding
+	 * points, whereas the orientation is recomputed when needed, as it is reversed by mirroring.
+	 */
 	public void clearCacheOnly() {
+		this.orientation = 0;
 		this.centroid = null;
 		this.bounds = null;
 		this.area = -1;
+		this.sampler = null;
+		this.samplerComputed = false;
 		if (this.oldPolygon != null)
 			oldPolygon.clearCacheOnly();
 	}
@@ -298,13 +446,24 @@ public class PolygonSimple implements Cloneable {
 
 
 	/**
-	 * Uses the linear time algorithm of O'Rourke to run the intersection of
-	 * two convex polygons.
+	 * Computes the intersection of this convex polygon with the given convex polygon.
 	 *
 	 * @param poly
-	 * @return
+	 * @return intersection, or null, if it is empty
 	 */
 	public PolygonSimple convexClip(PolygonSimple poly) {
+		return convexClip(poly, new ConvexClipper());
+	}
+
+	/**
+	 * Computes the intersection of this convex polygon with the given convex polygon, using the scratch buffers of
+	 * the given clipper.
+	 *
+	 * @param poly
+	 * @param clipper
+	 * @return intersection, or null, if it is empty
+	 */
+	public PolygonSimple convexClip(PolygonSimple poly, ConvexClipper clipper) {
 		//bounding box have to match for intersection
 		if (!this.getBounds2D().intersects(poly.getBounds2D()))
 			return null;
@@ -312,75 +471,98 @@ public class PolygonSimple implements Cloneable {
 		if (this.contains(poly.getBounds2D()))
 			return poly;
 
-		//bounding boxes intersect 
-
-		// to vertexList
-		cVertexList list1 = this.getVertexList();
-		cVertexList list2 = poly.getVertexList();
-		ConvexClip clipper = new ConvexClip();
-//		list1.PrintVertices();
-//		list2.PrintVertices();
-		clipper.Start(list1, list2);
-		PolygonSimple res = new PolygonSimple();
-		if (clipper.inters != null && clipper.inters.n > 0) {
-			cVertex node = clipper.inters.head;
-			double firstX = node.v.x;
-			double firstY = node.v.y;
-			res.add(node.v.x, node.v.y);
-			double lastX = node.v.x;
-			double lastY = node.v.y;
-			for (int i = 1; i < clipper.inters.n; i++) {
-				node = node.next;
-
-				if (lastX != node.v.x || lastY != node.v.y) {// do not add point
-					// if its the
-					// same as
-					// before
-					if (i != (clipper.inters.n - 1) || (node.v.x != firstX)
-						|| node.v.y != firstY) {// do not add if it is the
-						// end point and the same as
-						// the first point
-						res.add(node.v.x, node.v.y);
-					}
-				}
+		clipper.clip(x, y, length, getSignedArea() > 0, poly.x, poly.y, poly.length);
+		var result = clipper.getPolygon();
+		if (result != null)
+			result.setConvex(true);
+		return result;
+	}
 
-			}
-			return res;
+	/**
+	 * Returns the area of the polygon.
+	 */
+	public double getArea() {
+		if (area > 0) {
+			return area;
 		}
-		//no intersection between the two polygons, so check if one is inside the other
-		if (contains(poly.x[0], poly.y[0]))
-			return poly;
-
-		// no intersection between the polygons at all
-		return null;
+		this.area = Math.abs(getSignedArea());
+		return this.area;
 	}
 
-	private cVertexList getVertexList() {
-		cVertexList list = new cVertexList();
-		for (int i = length - 1; i >= 0; i--) {
-			cVertex vertex = new cVertex(x[i], y[i]);
-			list.InsertBeforeHead(vertex);
+	/**
+	 * Returns the signed area of the polygon, which is positive if the points are in counterclockwise order.
+	 */
+	public double getSignedArea() {
+		if (partStart == null)
+			return PolygonKernels.getInstance().signedArea(x, y, length);
+		var signedArea = 0.0;
+		for (var part = 0; part < partStart.length; part++) {
+			var start = getPartStart(part);
+			var end = getPartEnd(part);
+			signedArea += PolygonKernels.getInstance().signedArea(x, y, start, end - start);
 		}
-		return list;
+		return signedArea;
 	}
 
 	/**
-	 * Returns the area of the polygon.
+	 * tests whether the polygon is convex, that is, all turns have the same direction (ignoring collinear points)
+	 * and the boundary winds around only once. The result is cached.
 	 */
-	public double getArea() {
-		if (area > 0) {
-			return area;
+	public boolean isConvex() {
+		if (convex == null) {
+			orientation = (partStart == null ? computeConvexOrientation() : 0);
+			convex = (orientation != 0);
 		}
-		double area = 0;
-		// we can implement it like this because the polygon is closed
-		// (point2D.get(0) = point2D.get(length + 1)
-		int size = length - 1;
-		for (int i = 0; i < size; i++) {
-			area += (x[i] * y[i + 1] - x[i + 1] * y[i]);
+		return convex;
+	}
+
+	/**
+	 * flags the polygon as convex or not, if this is known, e.g. from the construction of the polygon
+	 */
+	public void setConvex(boolean convex) {
+		this.convex = (convex && length >= 3 && partStart == null);
+		this.orientation = 0;
+	}
+
+	/**
+	 * @return 1 or -1, if the polygon is convex and oriented counterclockwise or clockwise, 0, if it is not convex
+	 */
+	private int computeConvexOrientation() {
+		if (length < 3)
+			return 0;
+		var scale = 0.0;
+		for (var i = 0; i < length; i++)
+			scale = Math.max(scale, Math.max(Math.abs(x[i]), Math.abs(y[i])));
+		var tolerance = 1E-12 * scale * scale;
+
+		var sign = 0;
+		var directionChanges = 0;
+		var previousDirection = 0;
+		for (var i = 0; i < length; i++) {
+			var j = (i + 1) % length;
+			var k = (i + 2) % length;
+			var cross = (x[j] - x[i]) * (y[k] - y[j]) - (y[j] - y[i]) * (x[k] - x[j]);
+			if (Math.abs(cross) > tolerance) {
+				var crossSign = (cross > 0 ? 1 : -1);
+				if (sign == 0)
+					sign = crossSign;
+				else if (sign != crossSign)
+					return 0;
+			}
+			var direction = Double.compare(x[j], x[i]);
+			if (direction != 0) {
+				if (previousDirection != 0 && direction != previousDirection)
+					directionChanges++;
+				previousDirection = direction;
+			}
 		}
-		area += (x[size] * y[0] - x[0] * y[size]);
-		this.area = Math.abs(area) * 0.5;
-		return this.area;
+		// a convex polygon changes its x-direction exactly twice, when closing the loop
+		var firstDirection = 0;
+		for (var i = 0; i < length && firstDirection == 0; i++)
+			firstDirection = Double.compare(x[(i + 1) % length], x[i]);
+		if (firstDirection != 0 && firstDirection != previousDirection)
+			directionChanges++;
+		return (directionChanges <= 2 ? sign : 0);
 	}
 
 	/**
@@ -392,13 +574,15 @@ public class PolygonSimple implements Cloneable {
 	 * @return
 	 */
 	public double getMinDistanceToBorder(double x, double y) {
-		double result = Geometry.distancePointToSegment(this.x[length - 1],
-				this.y[length - 1], this.x[0], this.y[0], x, y);
-		for (int i = 0; i < (length - 1); i++) {
-			double distance = Geometry.distancePointToSegment(this.x[i],
-					this.y[i], this.x[i + 1], this.y[i + 1], x, y);
-			if (distance < result) {
-				result = distance;
+		double result = Double.MAX_VALUE;
+		for (var part = 0; part < getNumParts(); part++) {
+			var end = getPartEnd(part);
+			for (int i = getPartStart(part), j = end - 1; i < end; j = i++) {
+				double distance = Geometry.distancePointToSegment(this.x[j],
+						this.y[j], this.x[i], this.y[i], x, y);
+				if (distance < result) {
+					result = distance;
+				}
 			}
 		}
 		return result;
@@ -411,18 +595,28 @@ public class PolygonSimple implements Cloneable {
 	 */
 	public Point2D getCentroid() {
 		if (centroid == null) {
-			double xv = 0;
-			double yv = 0;
-			double areaQuotient = getArea() * 6;
-			for (int i = 0; i < length; i++) {
-				double temp = (x[i] * y[(i + 1) % length] - x[(i + 1) % length]
-															* y[i]);
-				xv += (x[i] + x[(i + 1) % length]) * temp;
-				yv += (y[i] + y[(i + 1) % length]) * temp;
+			// the area is computed in the same pass
+			var result = new double[3];
+			if (partStart == null) {
+				PolygonKernels.getInstance().centroid(x, y, length, result);
+				this.centroid = new Point2D(result[0], result[1]);
+				this.area = Math.abs(result[2]);
+			} else {
+				// the centroids of the parts, weighted by their areas
+				var cx = 0.0;
+				var cy = 0.0;
+				var signedArea = 0.0;
+				for (var part = 0; part < partStart.length; part++) {
+					var start = getPartStart(part);
+					var end = getPartEnd(part);
+					PolygonKernels.getInstance().centroid(x, y, start, end - start, result);
+					cx += result[0] * result[2];
+					cy += result[1] * result[2];
+					signedArea += result[2];
+				}
+				this.centroid = new Point2D(cx / signedArea, cy / signedArea);
+				this.area = Math.abs(signedArea);
 			}
-			xv = xv / areaQuotient;
-			yv = yv / areaQuotient;
-			this.centroid = new Point2D(xv, yv);
 		}
 		return centroid;
 	}
@@ -430,6 +624,9 @@ public class PolygonSimple implements Cloneable {
 
 	public PolygonSimple clone() {
 		PolygonSimple p = new PolygonSimple(this.getXPoints(), this.getYPoints(), length);
+		p.partStart = (partStart == null ? null : partStart.clone());
+		p.convex = this.convex;
+		p.orientation = this.orientation;
 		p.oldPolygon = this.oldPolygon;
 		return p;
 	}
@@ -442,17 +639,28 @@ public class PolygonSimple implements Cloneable {
 	public void shrinkForBorder(double percentage) {
 		oldPolygon = (PolygonSimple) this.clone();
 		getCentroid();
-		double cx = centroid.getX();
-		double cy = centroid.getY();
-		for (int i = 0; i < length; i++) {
-
-			double deltaX = x[i] - cx;
-			double deltaY = y[i] - cy;
-			double xnew = cx + deltaX * percentage;
-			double ynew = cy + deltaY * percentage;
-			x[i] = xnew;
-			y[i] = ynew;
+		for (var part = 0; part < getNumParts(); part++) {
+			// each part is shrunk towards its own centroid
+			var start = getPartStart(part);
+			var end = getPartEnd(part);
+			var center = (partStart == null ? centroid : getPart(part).getCentroid());
+			double cx = center.getX();
+			double cy = center.getY();
+			for (int i = start; i < end; i++) {
+
+				double deltaX = x[i] - cx;
+				double deltaY = y[i] - cy;
+				double xnew = cx + deltaX * percentage;
+				double ynew = cy + deltaY * percentage;
+				x[i] = xnew;
+				y[i] = ynew;
+			}
 		}
+		// the centroid and the convexity do not change
+		bounds = null;
+		area = -1;
+		sampler = null;
+		samplerComputed = false;
 
 		// /**
 		// * Method where you use the angle bisector of three points to shrink
@@ -573,20 +781,15 @@ public class PolygonSimple implements Cloneable {
 	}
 
 	/**
-	 * Returns a random point in the polygon.
+	 * Returns a point in the polygon. Successive calls return different points, drawn from a generator with a fixed
+	 * seed that is created on first use.
 	 *
 	 * @return
 	 */
 	public Point2D getInnerPoint() {
-		var b = getBounds();
-		double x = -1;
-		double y = -1;
-		do {
-			x = b.getMinX() + seed.nextDouble() * b.getWidth();
-			y = b.getMinY() + seed.nextDouble() * b.getHeight();
-		} while (!this.contains(x, y));
-
-		return new Point2D(x, y);
+		if (seed == null)
+			seed = new Random(5);
+		return getRandomInnerPoint(seed);
 	}
 
 	/**
@@ -755,7 +958,9 @@ public class PolygonSimple implements Cloneable {
 	 * @param random random source
 	 * @return random point in polygon
 	 */
-	public Point2D getRandomInnerPoint(Random random) {
+	public Point2D getRandomInnerPoint(RandomGenerator random) {
+		if (getSampler() != null)
+			return sampler.sample(random);
 		var bounds = getBounds();
 		var x = -1.0;
 		var y = -1.0;
@@ -765,4 +970,34 @@ public class PolygonSimple implements Cloneable {
 		} while (!contains(x, y));
 		return new Point2D(x, y);
 	}
+
+	/**
+	 * gets k random inner points, spread evenly across the polygon, see {@link PolygonSampler#sample(RandomGenerator, int)}
+	 *
+	 * @param random random source
+	 * @param k      number of points
+	 * @return random points in polygon
+	 */
+	public Point2D[] getRandomInnerPoints(RandomGenerator random, int k) {
+		if (getSampler() != null)
+			return sampler.sample(random, k);
+		var points = new Point2D[k];
+		for (var i = 0; i < k; i++)
+			points[i] = getRandomInnerPoint(random);
+		return points;
+	}
+
+	/**
+	 * gets the triangulation used for sampling inner points in logarithmic time. It is computed on first use and
+	 * discarded when the polygon is modified.
+	 *
+	 * @return sampler, or null, if the polygon cannot be triangulated, in which case points are found by rejection
+	 */
+	public PolygonSampler getSampler() {
+		if (!samplerComputed) {
+			sampler = PolygonSampler.create(this);
+			samplerComputed = true;
+		}
+		return sampler;
+	}
 }
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.j2d;
+
+/**
+ * scalar polygon kernels
+ */
+class ScalarPolygonKernels extends PolygonKernels {
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+
+	@Override
+	public double signedArea(double[] x, double[] y, int offset, int n) {
+		if (n < 3)
+			return 0;
+		var last = offset + n - 1;
+		var area = x[last] * y[offset] - x[offset] * y[last];
+		for (var i = offset; i < last; i++) {
+			area += x[i] * y[i + 1] - x[i + 1] * y[i];
+		}
+		return 0.5 * area;
+	}
+
+	@Override
+	public void centroid(double[] x, double[] y, int offset, int n, double[] result) {
+		var area = 0.0;
+		var cx = 0.0;
+		var cy = 0.0;
+		var end = offset + n;
+		for (int i = offset, j = offset + 1; i < end; i++, j++) {
+			if (j == end)
+				j = offset;
+			var temp = x[i] * y[j] - x[j] * y[i];
+			area += temp;
+			cx += (x[i] + x[j]) * temp;
+			cy += (y[i] + y[j]) * temp;
+		}
+		result[0] = cx / (3 * area);
+		result[1] = cy / (3 * area);
+		result[2] = 0.5 * area;
+	}
+
+	@Override
+	public void contains(double[] x, double[] y, int n, double[] px, double[] py, int m, boolean[] result) {
+		contains(x, y, n, px, py, 0, m, result);
+	}
+
+	/**
+	 * tests the points from (inclusive) to (exclusive)
+	 */
+	void contains(double[] x, double[] y, int n, double[] px, double[] py, int from, int to, boolean[] result) {
+		for (var k = from; k < to; k++) {
+			var inX = px[k];
+			var inY = py[k];
+			var inside = false;
+			for (int i = 0, j = n - 1; i < n; j = i++) {
+				if ((y[i] <= inY) != (y[j] <= inY) && inX < (x[j] - x[i]) * (inY - y[i]) / (y[j] - y[i]) + x[i])
+					inside = !inside;
+			}
+			result[k] = inside;
+		}
+	}
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.j2d;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * polygon kernels using the Vector API. Area and centroid process consecutive edges in the lanes,
+ * containment processes consecutive query points in the lanes. Polygons with fewer points than two vectors are
+ * handled by the scalar kernels.
+ */
+class VectorPolygonKernels extends ScalarPolygonKernels {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+
+	@Override
+	public String getName() {
+		return "vector(" + LANES + ")";
+	}
+
+	@Override
+	public double signedArea(double[] x, double[] y, int offset, int n) {
+		if (n < 2 * LANES)
+			return super.signedArea(x, y, offset, n);
+		var sum = DoubleVector.zero(SPECIES);
+		var end = offset + n;
+		var i = offset;
+		for (; i + LANES < end; i += LANES) {
+			var x0 = DoubleVector.fromArray(SPECIES, x, i);
+			var y0 = DoubleVector.fromArray(SPECIES, y, i);
+			var x1 = DoubleVector.fromArray(SPECIES, x, i + 1);
+			var y1 = DoubleVector.fromArray(SPECIES, y, i + 1);
+			sum = sum.add(x0.mul(y1).sub(x1.mul(y0)));
+		}
+		var area = sum.reduceLanes(VectorOperators.ADD);
+		for (; i < end; i++) {
+			var j = (i + 1 == end ? offset : i + 1);
+			area += x[i] * y[j] - x[j] * y[i];
+		}
+		return 0.5 * area;
+	}
+
+	@Override
+	public void centroid(double[] x, double[] y, int offset, int n, double[] result) {
+		if (n < 2 * LANES) {
+			super.centroid(x, y, offset, n, result);
+			return;
+		}
+		var areaSum = DoubleVector.zero(SPECIES);
+		var cxSum = DoubleVector.zero(SPECIES);
+		var cySum = DoubleVector.zero(SPECIES);
+		var end = offset + n;
+		var i = offset;
+		for (; i + LANES < end; i += LANES) {
+			var x0 = DoubleVector.fromArray(SPECIES, x, i);
+			var y0 = DoubleVector.fromArray(SPECIES, y, i);
+			var x1 = DoubleVector.fromArray(SPECIES, x, i + 1);
+			var y1 = DoubleVector.fromArray(SPECIES, y, i + 1);
+			var temp = x0.mul(y1).sub(x1.mul(y0));
+			areaSum = areaSum.add(temp);
+			cxSum = x0.add(x1).fma(temp, cxSum);
+			cySum = y0.add(y1).fma(temp, cySum);
+		}
+		var area = areaSum.reduceLanes(VectorOperators.ADD);
+		var cx = cxSum.reduceLanes(VectorOperators.ADD);
+		var cy = cySum.reduceLanes(VectorOperators.ADD);
+		for (; i < end; i++) {
+			var j = (i + 1 == end ? offset : i + 1);
+			var temp = x[i] * y[j] - x[j] * y[i];
+			area += temp;
+			cx += (x[i] + x[j]) * temp;
+			cy += (y[i] + y[j]) * temp;
+		}
+		result[0] = cx / (3 * area);
+		result[1] = cy / (3 * area);
+		result[2] = 0.5 * area;
+	}
+
+	@Override
+	public void contains(double[] x, double[] y, int n, double[] px, double[] py, int m, boolean[] result) {
+		var k = 0;
+		for (; k + LANES <= m; k += LANES) {
+			var inX = DoubleVector.fromArray(SPECIES, px, k);
+			var inY = DoubleVector.fromArray(SPECIES, py, k);
+			var inside = SPECIES.maskAll(false);
+			for (int i = 0, j = n - 1; i < n; j = i++) {
+				var crossesY = inY.compare(VectorOperators.GE, y[i]).eq(inY.compare(VectorOperators.GE, y[j])).not();
+				if (!crossesY.anyTrue())
+					continue;
+				var xCross = inY.sub(y[i]).mul(x[j] - x[i]).div(y[j] - y[i]).add(x[i]);
+				var hit = crossesY.and(inX.compare(VectorOperators.LT, xCross));
+				inside = inside.eq(hit).not();
+			}
+			inside.intoArray(result, k);
+		}
+		super.contains(x, y, n, px, py, k, m, result);
+	}
+}
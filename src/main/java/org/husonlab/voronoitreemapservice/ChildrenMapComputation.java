@@ -24,18 +24,32 @@ import kn.uni.voronoitreemap.datastructure.OpenList;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
 import kn.uni.voronoitreemap.j2d.Site;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Random;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
+import java.util.function.IntSupplier;
 
 /**
  * compute a Voronoi map for the children of a node,
  * using kn.uni.voronoitreemap by Arlind Nocaj
  * Daniel Huson, 4.2023
  */
-public class ChildrenMapComputation {
-	private final Random random;
+public class ChildrenMapComputation implements ChildrenMapEngine {
+	private final SplittableRandom random;
 	private final Settings settings;
+	private final long seed;
+	private double[] warmStartX;
+	private double[] warmStartY;
+	private double[] warmStartWeight;
+	private Executor executor;
+	private IntSupplier parallelism;
 
 	/**
 	 * constructor
@@ -43,54 +57,219 @@ public class ChildrenMapComputation {
 	 * @param settings settings
 	 */
 	public ChildrenMapComputation(Settings settings) {
+		this(settings, settings.getSeed());
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param settings settings
+	 * @param seed     the seed for this node, see {@link #childSeed(long, int)}
+	 */
+	public ChildrenMapComputation(Settings settings, long seed) {
 		this.settings = settings;
-		random = new Random(settings.getSeed());
+		this.seed = seed;
+		random = new SplittableRandom(seed);
+	}
+
+	/**
+	 * derives the seed of a child from the seed of its parent and its position among the children, so that the
+	 * seed of a node only depends on the seed of the root and the path to the node, and not on the order in which
+	 * nodes are computed
+	 *
+	 * @param parentSeed the seed of the parent
+	 * @param childIndex the position of the child among the children of the parent
+	 * @return the seed of the child
+	 */
+	public static long childSeed(long parentSeed, int childIndex) {
+		// the finalizer of SplitMix64
+		var z = parentSeed + (childIndex + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * sets the initial positions and weights of the sites, in the order of the children, typically those computed
+	 * for the children previously. A child whose x-coordinate is NaN is placed at a random point, as usual.
+	 * A warm-started computation does not use the layout cache, as its result depends on the start.
+	 *
+	 * @param x      initial x-coordinates
+	 * @param y      initial y-coordinates
+	 * @param weight initial weights
+	 */
+	public void setWarmStart(double[] x, double[] y, double[] weight) {
+		this.warmStartX = x;
+		this.warmStartY = y;
+		this.warmStartWeight = weight;
+	}
+
+	@Override
+	public void setParallelism(Executor executor, IntSupplier parallelism) {
+		this.executor = executor;
+		this.parallelism = parallelism;
 	}
 
 	/**
-	 * does the computation
+	 * computes the desired area percentages of the given children
+	 */
+	static <T> double[] computePercentages(List<T> children, Function<T, Double> areaFunction) {
+		var numberChildren = children.size();
+		var totalArea = children.stream().mapToDouble(areaFunction::apply).sum();
+		var percentages = new double[numberChildren];
+		for (var i = 0; i < numberChildren; i++) {
+			if (totalArea == 0)
+				percentages[i] = 1.0 / numberChildren;
+			else
+				percentages[i] = areaFunction.apply(children.get(i)) / totalArea;
+		}
+		return percentages;
+	}
+
+	/**
+	 * does the computation. If the settings have a layout cache, a cached layout is used, if present, and otherwise
+	 * the computed layout is added to the cache. The cache holds the polygons before shrinking for the border, so that
+	 * cached and computed polygons both provide {@link PolygonSimple#getOriginalPolygon()}
 	 *
 	 * @param node             the current tree node
 	 * @param childrenFunction the children function
 	 * @param areaFunction     the desired area function
 	 * @param polygon          the polygon to fit the map into
 	 */
+	@Override
 	public <T> OpenList run(T node, Function<T, Collection<T>> childrenFunction, Function<T, Double> areaFunction, PolygonSimple polygon) {
 		if (childrenFunction.apply(node) == null)
 			return null;
-		var numberChildren = childrenFunction.apply(node).size();
+		var children = new ArrayList<>(childrenFunction.apply(node));
+		var numberChildren = children.size();
 		if (numberChildren == 0)
 			return null;
 
+		var percentages = computePercentages(children, areaFunction);
+		var warmStart = (warmStartX != null && warmStartX.length == numberChildren);
+
+		var cache = (warmStart ? null : settings.getLayoutCache());
+		LayoutKey key = null;
+		if (cache != null) {
+			key = LayoutKey.compute(percentages, polygon, settings, seed);
+			var layout = cache.get(key);
+			if (layout != null && layout.size() == numberChildren)
+				return shrinkForBorder(layout.createSites(children, percentages));
+		}
+
+		VoronoiCore voronoiCore;
+		if (!warmStart && settings.getMultiStarts() > 1 && numberChildren >= settings.getMultiStartMinChildren()) {
+			// the first start is the one that is used without multiple starts, so that the result is never worse
+			var cores = new ArrayList<VoronoiCore>();
+			cores.add(createCore(polygon, children, percentages, random, false));
+			for (var i = 1; i < settings.getMultiStarts(); i++)
+				cores.add(createCore(polygon, children, percentages, random.split(), false));
+			voronoiCore = runStarts(cores);
+		} else {
+			voronoiCore = createCore(polygon, children, percentages, random, warmStart);
+			if (executor != null)
+				voronoiCore.setParallelism(executor, parallelism);
+			voronoiCore.doIterate();
+		}
+
+		var sites = voronoiCore.getSites();
+		if (cache != null) {
+			var layout = NodeLayout.create(sites);
+			if (layout != null)
+				cache.put(key, layout);
+		}
+		return shrinkForBorder(sites);
+	}
+
+	/**
+	 * shrinks the polygons of the sites for the border, if requested in the settings
+	 */
+	private OpenList shrinkForBorder(OpenList sites) {
+		if (settings.getPolygonScaleFactor() > 0 && settings.getPolygonScaleFactor() != 1.0) {
+			for (var i = 0; i < sites.size; i++) {
+				if (sites.array[i].getPolygon() != null)
+					sites.array[i].getPolygon().shrinkForBorder(settings.getPolygonScaleFactor());
+			}
+		}
+		return sites;
+	}
+
+	/**
+	 * sets up a Voronoi core for the children, with initial positions spread evenly across the polygon, or
+	 * given by the warm start
+	 */
+	private <T> VoronoiCore createCore(PolygonSimple polygon, List<T> children, double[] percentages, SplittableRandom random, boolean warmStart) {
 		// this is important:
 		polygon = new PolygonSimple(polygon);
 
 		var voronoiCore = new VoronoiCore();
 		voronoiCore.setSettings(settings);
+		voronoiCore.setRandom(random.split());
 		voronoiCore.setClipPolygon(polygon);
 
 		// add each child as a site
-		var totalArea = childrenFunction.apply(node).stream().mapToDouble(areaFunction::apply).sum();
-
-		for (var child : childrenFunction.apply(node)) {
-			var point = polygon.getRelativePosition(polygon.getRandomInnerPoint(random));
-			var site = new Site(point.getX(), point.getY());
-			if (totalArea == 0)
-				site.setPercentage(1.0 / numberChildren);
+		var points = polygon.getRandomInnerPoints(random, children.size());
+		for (var i = 0; i < children.size(); i++) {
+			Site site;
+			if (warmStart && !Double.isNaN(warmStartX[i]))
+				site = new Site(warmStartX[i], warmStartY[i], warmStartWeight[i]);
 			else
-				site.setPercentage(areaFunction.apply(child) / totalArea);
-			site.setData(child);
+				site = new Site(points[i].getX(), points[i].getY());
+			site.setPercentage(percentages[i]);
+			site.setData(children.get(i));
 			voronoiCore.addSite(site);
 		}
+		return voronoiCore;
+	}
 
-		voronoiCore.doIterate();
+	/**
+	 * runs the given cores in parallel, using the helper threads, if set, and the calling thread. Each core runs to
+	 * the end, under the same iteration limits as without multiple starts, so that the chosen layout does not depend
+	 * on timing or on the number of threads and may be cached.
+	 *
+	 * @return the core with the smallest area error, the first one among equal errors
+	 */
+	private VoronoiCore runStarts(List<VoronoiCore> cores) {
+		var k = cores.size();
+		var next = new AtomicInteger();
+		var done = new CountDownLatch(k);
+		var failure = new AtomicReference<RuntimeException>();
 
-		var sites = voronoiCore.getSites();
-		if (settings.getPolygonScaleFactor() > 0 && settings.getPolygonScaleFactor() != 1.0) {
-			for (var i = 0; i < sites.size; i++) {
-				sites.array[i].getPolygon().shrinkForBorder(settings.getPolygonScaleFactor());
+		Runnable worker = () -> {
+			int i;
+			while ((i = next.getAndIncrement()) < k) {
+				try {
+					cores.get(i).doIterate();
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		if (executor != null) {
+			try {
+				for (var t = 1; t < Math.min(k, parallelism.getAsInt()); t++)
+					executor.execute(worker);
+			} catch (RejectedExecutionException ignored) {
+				// the calling thread runs the remaining starts
 			}
 		}
-		return sites;
+		worker.run();
+		try {
+			done.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+
+		if (failure.get() != null)
+			throw failure.get();
+		var best = cores.get(0);
+		for (var i = 1; i < k; i++) {
+			if (cores.get(i).getAreaError() < best.getAreaError())
+				best = cores.get(i);
+		}
+		return best;
 	}
 }
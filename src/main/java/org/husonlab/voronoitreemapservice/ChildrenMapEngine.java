@@ -0,0 +1,68 @@
+/*
+ * ChildrenMapEngine.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.datastructure.OpenList;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+import java.util.Collection;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+/**
+ * computes the map of the children of a node, that is, a site and a polygon for each child
+ */
+public interface ChildrenMapEngine {
+	/**
+	 * does the computation
+	 *
+	 * @param node             the current tree node
+	 * @param childrenFunction the children function
+	 * @param areaFunction     the desired area function
+	 * @param polygon          the polygon to fit the map into
+	 * @return the sites, one for each child, in the order of the children, with the child as data, or null, if the
+	 * node has no children
+	 */
+	<T> OpenList run(T node, Function<T, Collection<T>> childrenFunction, Function<T, Double> areaFunction, PolygonSimple polygon);
+
+	/**
+	 * lets the engine use helper threads within the computation of a node, if it supports this
+	 *
+	 * @param executor    runs helper tasks
+	 * @param parallelism the number of threads that may currently be used
+	 */
+	default void setParallelism(Executor executor, IntSupplier parallelism) {
+	}
+
+	/**
+	 * creates the engine selected in the settings
+	 *
+	 * @param settings the settings
+	 * @param seed     the seed of the node
+	 * @return engine
+	 */
+	static ChildrenMapEngine create(Settings settings, long seed) {
+		if (settings.getEngine() == Settings.Engine.Raster)
+			return new RasterChildrenMapComputation(settings, seed);
+		else
+			return new ChildrenMapComputation(settings, seed);
+	}
+}
@@ -0,0 +1,236 @@
+/*
+ * DiskLayoutCache.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * content-addressed on-disk layout cache.
+ * <p>
+ * Each layout is stored in its own file in the cache directory, named by its key. Files are read and written with
+ * plain file channels, a new file is first written under a unique temporary name and then renamed, so that readers
+ * never see a partial file and concurrent writers of the same key do not interfere. Only the index of files is
+ * synchronized, no I/O is done while holding its lock. The total size of all files is capped, and the least
+ * recently used files are deleted when the cap is exceeded. The order of use is kept in the modification times of
+ * the files, so that it survives restarts. Any I/O error is treated as a cache miss, so that the cache never breaks
+ * a computation.
+ */
+public class DiskLayoutCache implements LayoutCache {
+	private static final int MAGIC = 0x56544C43; // VTLC
+	private static final int VERSION = 3;
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 8;
+	private static final String SUFFIX = ".layout";
+
+	private final Path directory;
+	private final long maxBytes;
+	/**
+	 * size in bytes of each cached file, in order of use, least recently used first, guarded by itself
+	 */
+	private final LinkedHashMap<LayoutKey, Long> index = new LinkedHashMap<>(16, 0.75f, true);
+	private long totalBytes;
+
+	/**
+	 * constructor, opens or creates the cache in the given directory
+	 *
+	 * @param directory the cache directory
+	 * @param maxBytes  the maximum total size of all cached files
+	 * @throws IOException if the directory cannot be created or read
+	 */
+	public DiskLayoutCache(Path directory, long maxBytes) throws IOException {
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(directory);
+
+		var files = new ArrayList<Path>();
+		try (var stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			stream.forEach(files::add);
+		}
+		files.sort(Comparator.comparing(file -> {
+			try {
+				return Files.getLastModifiedTime(file);
+			} catch (IOException e) {
+				return FileTime.fromMillis(0);
+			}
+		}));
+		for (var file : files) {
+			var key = parseKey(file.getFileName().toString());
+			if (key != null) {
+				try {
+					var size = Files.size(file);
+					index.put(key, size);
+					totalBytes += size;
+				} catch (IOException ignored) {
+				}
+			}
+		}
+		delete(evict());
+	}
+
+	@Override
+	public NodeLayout get(LayoutKey key) {
+		synchronized (index) {
+			// also marks the key as recently used
+			if (index.get(key) == null)
+				return null;
+		}
+		var file = getFile(key);
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			var buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0)
+					throw new IOException("truncated cache file: " + file);
+			}
+			buffer.flip();
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != key.getHigh() || buffer.getLong() != key.getLow())
+				throw new IOException("corrupt cache file: " + file);
+			var layout = NodeLayout.read(buffer);
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+			return layout;
+		} catch (IOException | RuntimeException e) {
+			remove(key);
+			return null;
+		}
+	}
+
+	@Override
+	public void put(LayoutKey key, NodeLayout layout) {
+		synchronized (index) {
+			if (index.containsKey(key))
+				return;
+		}
+		var size = HEADER_BYTES + layout.getByteSize();
+		if (size > maxBytes)
+			return;
+		var file = getFile(key);
+		Path tmpFile = null;
+		try {
+			tmpFile = Files.createTempFile(directory, key.toString(), ".tmp");
+			var buffer = ByteBuffer.allocate(size);
+			buffer.putInt(MAGIC);
+			buffer.putInt(VERSION);
+			buffer.putLong(key.getHigh());
+			buffer.putLong(key.getLow());
+			layout.write(buffer);
+			buffer.flip();
+			try (var channel = FileChannel.open(tmpFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+				channel.force(false);
+			}
+			// the file only appears under its name once it is complete
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			List<LayoutKey> evicted;
+			synchronized (index) {
+				if (index.put(key, (long) size) == null)
+					totalBytes += size;
+				evicted = evict();
+			}
+			delete(evicted);
+		} catch (IOException | RuntimeException e) {
+			if (tmpFile != null) {
+				try {
+					Files.deleteIfExists(tmpFile);
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		List<LayoutKey> keys;
+		synchronized (index) {
+			keys = new ArrayList<>(index.keySet());
+			index.clear();
+			totalBytes = 0;
+		}
+		delete(keys);
+	}
+
+	public long getTotalBytes() {
+		synchronized (index) {
+			return totalBytes;
+		}
+	}
+
+	public int size() {
+		synchronized (index) {
+			return index.size();
+		}
+	}
+
+	/**
+	 * removes least recently used files from the index until the total size is below the cap, to be called while
+	 * holding the lock of the index
+	 *
+	 * @return the keys of the files to delete
+	 */
+	private List<LayoutKey> evict() {
+		var evicted = new ArrayList<LayoutKey>();
+		var it = index.entrySet().iterator();
+		while (totalBytes > maxBytes && it.hasNext()) {
+			var entry = it.next();
+			it.remove();
+			totalBytes -= entry.getValue();
+			evicted.add(entry.getKey());
+		}
+		return evicted;
+	}
+
+	private void remove(LayoutKey key) {
+		synchronized (index) {
+			var size = index.remove(key);
+			if (size != null)
+				totalBytes -= size;
+		}
+		delete(List.of(key));
+	}
+
+	private void delete(List<LayoutKey> keys) {
+		for (var key : keys) {
+			try {
+				Files.deleteIfExists(getFile(key));
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	private Path getFile(LayoutKey key) {
+		return directory.resolve(key + SUFFIX);
+	}
+
+	private static LayoutKey parseKey(String fileName) {
+		if (fileName.length() != 32 + SUFFIX.length())
+			return null;
+		try {
+			return new LayoutKey(Long.parseUnsignedLong(fileName.substring(0, 16), 16), Long.parseUnsignedLong(fileName.substring(16, 32), 16));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+}
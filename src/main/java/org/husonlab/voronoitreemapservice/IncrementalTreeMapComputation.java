@@ -0,0 +1,422 @@
+/*
+ * IncrementalTreeMapComputation.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Voronoi tree map computation that keeps its state, so that it can be updated when some weights change or
+ * children are added or removed.
+ * <p>
+ * The children of each node are laid out by {@link ChildrenMapComputation}, with the per-node settings and seeds
+ * used by {@link VoronoiTreeMapComputation}, so the initial computation gives the same result as the latter with the
+ * Voronoi engine and without virtual grouping. The raster engine and the maximum fan-out of the settings are not
+ * used here, as the warm starts need the exact layout and a fixed set of siblings. After the initial computation,
+ * update() takes the nodes whose own weight or whose set of children changed. It updates the desired areas of these nodes and their
+ * ancestors, and then walks down from the root: the children of a node are laid out again only if the polygon of the
+ * node changed or the desired area percentages of its children changed. Such a layout is warm-started from the
+ * previous positions and weights of the children's sites, new children start next to a surviving sibling, so it
+ * usually needs only a few iterations and the layout stays stable. Everything else is reused.
+ */
+public class IncrementalTreeMapComputation<T> {
+	private final Settings settings;
+	private final T rootNode;
+	private final Function<T, Collection<T>> childrenFunction;
+	private final PolygonSimple rootPolygon;
+
+	private Function<T, Double> weightFunction;
+	private final Map<T, T> parentMap = new HashMap<>();
+	/**
+	 * the children of each node, as last seen, to detect added and removed children
+	 */
+	private final Map<T, List<T>> childrenMap = new HashMap<>();
+	private final Map<T, Double> areaMap = new HashMap<>();
+	private final Map<T, NodeState> stateMap = new ConcurrentHashMap<>();
+
+	/**
+	 * what is kept for a node: its polygon and the final position and weight of its site, its seed and level, and
+	 * the area percentages of its children used for their last layout
+	 */
+	private static class NodeState {
+		PolygonSimple polygon;
+		double x = Double.NaN;
+		double y = Double.NaN;
+		double weight;
+		long seed;
+		int level;
+		double[] percentages;
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param settings         algorithm settings
+	 * @param rootNode         the root node
+	 * @param childrenFunction gets children of a node
+	 * @param rootPolygon      the root polygon to draw the map into
+	 */
+	public IncrementalTreeMapComputation(Settings settings, T rootNode, Function<T, Collection<T>> childrenFunction, PolygonSimple rootPolygon) {
+		this.settings = settings;
+		this.rootNode = rootNode;
+		this.childrenFunction = childrenFunction;
+		this.rootPolygon = rootPolygon;
+	}
+
+	/**
+	 * computes the whole tree map from scratch
+	 *
+	 * @param weightFunction gets the weight of a node, leaves should have non-zero weight. It is kept for updates
+	 * @param resultConsumer is called when polygon for node has been computed
+	 * @return number of nodes whose children were laid out
+	 */
+	public int compute(Function<T, Double> weightFunction, BiConsumer<T, PolygonSimple> resultConsumer) {
+		return compute(weightFunction, toDeltaConsumer(resultConsumer));
+	}
+
+	/**
+	 * computes the whole tree map from scratch
+	 *
+	 * @param weightFunction gets the weight of a node, leaves should have non-zero weight. It is kept for updates
+	 * @param deltaConsumer  receives an added polygon for each node
+	 * @return number of nodes whose children were laid out
+	 */
+	private int compute(Function<T, Double> weightFunction, Consumer<LayoutDelta<T>> deltaConsumer) {
+		this.weightFunction = weightFunction;
+		parentMap.clear();
+		childrenMap.clear();
+		areaMap.clear();
+		stateMap.clear();
+		computeAreasRec(rootNode);
+
+		var rootState = new NodeState();
+		rootState.polygon = rootPolygon;
+		rootState.seed = settings.getSeed();
+		stateMap.put(rootNode, rootState);
+		return run(Collections.emptySet(), deltaConsumer);
+	}
+
+	/**
+	 * updates the tree map after the weights of some nodes have changed, using the weight function last given
+	 *
+	 * @param changedNodes   the nodes whose own weight changed
+	 * @param resultConsumer is called for each node whose polygon changed
+	 * @return number of nodes whose children were laid out again
+	 */
+	public int update(Collection<T> changedNodes, BiConsumer<T, PolygonSimple> resultConsumer) {
+		return update(changedNodes, weightFunction, resultConsumer);
+	}
+
+	/**
+	 * updates the tree map after the weights of some nodes have changed
+	 *
+	 * @param changedNodes   the nodes whose own weight or set of children changed
+	 * @param weightFunction gets the weight of a node
+	 * @param resultConsumer is called for each node whose polygon changed or that was added
+	 * @return number of nodes whose children were laid out again
+	 */
+	public int update(Collection<T> changedNodes, Function<T, Double> weightFunction, BiConsumer<T, PolygonSimple> resultConsumer) {
+		return applyChanges(changedNodes, weightFunction, toDeltaConsumer(resultConsumer));
+	}
+
+	/**
+	 * updates the tree map after the weights or the children of some nodes have changed, using the weight function
+	 * last given, and reports all changes as a stream of deltas
+	 *
+	 * @param changedNodes  the nodes whose own weight or set of children changed
+	 * @param deltaConsumer receives a delta for each node that was added or removed or whose polygon changed
+	 * @return number of nodes whose children were laid out again
+	 */
+	public int applyChanges(Collection<T> changedNodes, Consumer<LayoutDelta<T>> deltaConsumer) {
+		return applyChanges(changedNodes, weightFunction, deltaConsumer);
+	}
+
+	/**
+	 * updates the tree map after the weights or the children of some nodes have changed, and reports all changes
+	 * as a stream of deltas. Removed nodes are reported first, by the calling thread, the other deltas are reported
+	 * as they are computed
+	 *
+	 * @param changedNodes   the nodes whose own weight or set of children changed
+	 * @param weightFunction gets the weight of a node
+	 * @param deltaConsumer  receives a delta for each node that was added or removed or whose polygon changed
+	 * @return number of nodes whose children were laid out again
+	 */
+	public int applyChanges(Collection<T> changedNodes, Function<T, Double> weightFunction, Consumer<LayoutDelta<T>> deltaConsumer) {
+		if (stateMap.isEmpty())
+			return compute(weightFunction, deltaConsumer);
+		this.weightFunction = weightFunction;
+
+		// remove the subtrees of all removed children first, so that a node can be moved to another parent
+		var childrenLists = new HashMap<T, List<T>>();
+		for (var v : changedNodes) {
+			if (!isInTree(v) || childrenLists.containsKey(v))
+				continue;
+			var children = new ArrayList<>(childrenFunction.apply(v));
+			childrenLists.put(v, children);
+			var current = new HashSet<>(children);
+			for (var c : childrenMap.get(v)) {
+				if (!current.contains(c) && parentMap.get(c) == v)
+					removeSubtree(c, deltaConsumer);
+			}
+		}
+		var inTree = new ArrayList<T>();
+		for (var v : childrenLists.keySet()) {
+			// a changed node may itself have been removed
+			if (!isInTree(v))
+				continue;
+			inTree.add(v);
+			var children = childrenLists.get(v);
+			for (var c : children) {
+				if (!areaMap.containsKey(c)) {
+					parentMap.put(c, v);
+					computeAreasRec(c);
+				}
+			}
+			childrenMap.put(v, children);
+		}
+
+		// update the desired areas from the changed nodes up to the root, and collect all nodes on these paths
+		var onPath = new HashSet<T>();
+		for (var v : inTree) {
+			for (var w = v; w != null && onPath.add(w); w = parentMap.get(w)) {
+			}
+		}
+		var todo = new ArrayList<>(onPath);
+		// deepest nodes first, so that the areas of the children are updated before those of their parent
+		todo.sort(Comparator.comparingInt(v -> -depth(v)));
+		for (var v : todo) {
+			var area = 0.0;
+			for (var c : childrenMap.get(v))
+				area += areaMap.get(c);
+			var add = weightFunction.apply(v);
+			if (add != null && add > 0)
+				area += add;
+			areaMap.put(v, area);
+		}
+		return run(onPath, deltaConsumer);
+	}
+
+	/**
+	 * gets the current polygon of a node
+	 *
+	 * @return polygon, or null
+	 */
+	public PolygonSimple getPolygon(T node) {
+		var state = stateMap.get(node);
+		return (state == null ? null : state.polygon);
+	}
+
+	/**
+	 * walks down from the root in parallel, laying out the children of all nodes that need it
+	 */
+	private int run(Set<T> onPath, Consumer<LayoutDelta<T>> deltaConsumer) {
+		var executorService = Executors.newFixedThreadPool(settings.getNumberOfThreads());
+		var phaser = new Phaser(1);
+		var count = new AtomicInteger();
+		submit(executorService, phaser, rootNode, stateMap.get(rootNode).percentages == null, onPath, deltaConsumer, count);
+		phaser.arriveAndAwaitAdvance();
+		executorService.shutdownNow();
+		return count.get();
+	}
+
+	private void submit(ExecutorService executorService, Phaser phaser, T node, boolean polygonChanged, Set<T> onPath, Consumer<LayoutDelta<T>> deltaConsumer, AtomicInteger count) {
+		phaser.register();
+		executorService.submit(() -> {
+			try {
+				visit(executorService, phaser, node, polygonChanged, onPath, deltaConsumer, count);
+			} catch (Exception e) {
+				System.err.println(e.getMessage());
+			} finally {
+				phaser.arriveAndDeregister();
+			}
+		});
+	}
+
+	/**
+	 * lays out the children of a node, if its polygon or the percentages of its children changed, and continues
+	 * with all children whose polygon changed or that lie on a path to a changed node
+	 */
+	private void visit(ExecutorService executorService, Phaser phaser, T node, boolean polygonChanged, Set<T> onPath, Consumer<LayoutDelta<T>> deltaConsumer, AtomicInteger count) {
+		var children = childrenMap.get(node);
+		if (children.isEmpty())
+			return;
+		var state = stateMap.get(node);
+		var percentages = ChildrenMapComputation.computePercentages(children, areaMap::get);
+
+		if (!polygonChanged && Arrays.equals(percentages, state.percentages)) {
+			for (var child : children) {
+				if (onPath.contains(child))
+					submit(executorService, phaser, child, false, onPath, deltaConsumer, count);
+			}
+			return;
+		}
+
+		count.incrementAndGet();
+		var compute = new ChildrenMapComputation(settings.getNodeSettings(state.level, state.polygon.getArea() / rootPolygon.getArea()), state.seed);
+		if (state.percentages != null) {
+			var x = new double[children.size()];
+			var y = new double[children.size()];
+			var weight = new double[children.size()];
+			for (var i = 0; i < children.size(); i++) {
+				var childState = stateMap.get(children.get(i));
+				if (childState != null && !Double.isNaN(childState.x)) {
+					x[i] = childState.x;
+					y[i] = childState.y;
+					weight[i] = childState.weight;
+				} else
+					x[i] = Double.NaN;
+			}
+			placeNewChildren(x, y, weight, children, percentages, state);
+			compute.setWarmStart(x, y, weight);
+		}
+		var childSites = compute.run(node, v -> children, areaMap::get, state.polygon);
+		state.percentages = percentages;
+		if (childSites == null)
+			return;
+
+		for (var position = 0; position < childSites.size; position++) {
+			var site = childSites.array[position];
+			var childSeed = ChildrenMapComputation.childSeed(state.seed, position);
+			if (site == null)
+				continue;
+			var child = children.get(position);
+			var polygon = site.getPolygon();
+			polygon.setLevel(state.level);
+
+			var childState = stateMap.computeIfAbsent(child, k -> new NodeState());
+			var added = (childState.polygon == null);
+			var changed = (added || !samePoints(childState.polygon, polygon));
+			childState.polygon = polygon;
+			childState.x = site.getX();
+			childState.y = site.getY();
+			childState.weight = site.getWeight();
+			childState.seed = childSeed;
+			childState.level = state.level + 1;
+			if (changed) {
+				synchronized (deltaConsumer) {
+					deltaConsumer.accept(new LayoutDelta<>(added ? LayoutDelta.Type.Added : LayoutDelta.Type.Changed, child, polygon));
+				}
+			}
+			if (changed || onPath.contains(child))
+				submit(executorService, phaser, child, changed, onPath, deltaConsumer, count);
+		}
+	}
+
+	/**
+	 * recursively computes the parent and desired area of each node in the subtree
+	 */
+	private double computeAreasRec(T v) {
+		var area = 0.0;
+		var children = new ArrayList<>(childrenFunction.apply(v));
+		childrenMap.put(v, children);
+		for (var c : children) {
+			parentMap.put(c, v);
+			area += computeAreasRec(c);
+		}
+		var add = weightFunction.apply(v);
+		if (add != null && add > 0)
+			area += add;
+		areaMap.put(v, area);
+		return area;
+	}
+
+	/**
+	 * places each new child, that is, one without a previous position, next to the nearest surviving sibling in the
+	 * order of children, at the distance at which their desired areas would touch as circles, and with zero weight.
+	 * If there is no surviving sibling, the child is left to be placed at random
+	 */
+	private void placeNewChildren(double[] x, double[] y, double[] weight, List<T> children, double[] percentages, NodeState state) {
+		var area = state.polygon.getArea();
+		for (var i = 0; i < children.size(); i++) {
+			if (!Double.isNaN(x[i]))
+				continue;
+			var sibling = -1;
+			for (var d = 1; d < children.size() && sibling == -1; d++) {
+				if (i - d >= 0 && stateMap.get(children.get(i - d)) != null && !Double.isNaN(stateMap.get(children.get(i - d)).x))
+					sibling = i - d;
+				else if (i + d < children.size() && stateMap.get(children.get(i + d)) != null && !Double.isNaN(stateMap.get(children.get(i + d)).x))
+					sibling = i + d;
+			}
+			if (sibling != -1) {
+				var distance = Math.sqrt(area * percentages[i] / Math.PI) + Math.sqrt(area * percentages[sibling] / Math.PI);
+				// a fixed direction per child, so that the result is reproducible
+				var angle = 2 * Math.PI * ((ChildrenMapComputation.childSeed(state.seed, i) >>> 11) * 0x1.0p-53);
+				x[i] = x[sibling] + distance * Math.cos(angle);
+				y[i] = y[sibling] + distance * Math.sin(angle);
+				weight[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * removes the subtree below a removed node and reports all of its nodes as removed
+	 */
+	private void removeSubtree(T v, Consumer<LayoutDelta<T>> deltaConsumer) {
+		var children = childrenMap.remove(v);
+		if (children != null) {
+			for (var c : children) {
+				if (parentMap.get(c) == v)
+					removeSubtree(c, deltaConsumer);
+			}
+		}
+		parentMap.remove(v);
+		areaMap.remove(v);
+		if (stateMap.remove(v) != null)
+			deltaConsumer.accept(new LayoutDelta<>(LayoutDelta.Type.Removed, v, null));
+	}
+
+	private boolean isInTree(T v) {
+		return v == rootNode || parentMap.containsKey(v);
+	}
+
+	private static <T> Consumer<LayoutDelta<T>> toDeltaConsumer(BiConsumer<T, PolygonSimple> resultConsumer) {
+		return delta -> {
+			if (delta.getPolygon() != null)
+				resultConsumer.accept(delta.getNode(), delta.getPolygon());
+		};
+	}
+
+	private int depth(T v) {
+		var depth = 0;
+		for (var w = parentMap.get(v); w != null; w = parentMap.get(w))
+			depth++;
+		return depth;
+	}
+
+	private static boolean samePoints(PolygonSimple a, PolygonSimple b) {
+		var n = a.getNumPoints();
+		if (n != b.getNumPoints() || a.getNumParts() != b.getNumParts())
+			return false;
+		for (var part = 1; part < a.getNumParts(); part++) {
+			if (a.getPartStart(part) != b.getPartStart(part))
+				return false;
+		}
+		return Arrays.equals(a.getXPoints(), 0, n, b.getXPoints(), 0, n) && Arrays.equals(a.getYPoints(), 0, n, b.getYPoints(), 0, n);
+	}
+}
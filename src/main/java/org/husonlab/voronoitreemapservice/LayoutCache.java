@@ -0,0 +1,47 @@
+/*
+ * LayoutCache.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+/**
+ * cache of node layouts, keyed by the content hash of everything that determines a layout.
+ * Implementations must be thread safe, as the cache is used by all worker threads of a computation
+ */
+public interface LayoutCache {
+	/**
+	 * gets a cached layout
+	 *
+	 * @param key the key
+	 * @return layout, or null
+	 */
+	NodeLayout get(LayoutKey key);
+
+	/**
+	 * puts a layout into the cache, possibly evicting others
+	 *
+	 * @param key    the key
+	 * @param layout the layout
+	 */
+	void put(LayoutKey key, NodeLayout layout);
+
+	/**
+	 * removes all entries
+	 */
+	void clear();
+}
@@ -0,0 +1,67 @@
+/*
+ * LayoutDelta.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+/**
+ * a change of the layout of a single node, as reported by an incremental computation, so that a renderer can
+ * patch its scene instead of rebuilding it
+ */
+public class LayoutDelta<T> {
+	public enum Type {Added, Changed, Removed}
+
+	private final Type type;
+	private final T node;
+	private final PolygonSimple polygon;
+
+	/**
+	 * constructor
+	 *
+	 * @param type    the type of change
+	 * @param node    the node
+	 * @param polygon the new polygon, or null, if the node was removed
+	 */
+	public LayoutDelta(Type type, T node, PolygonSimple polygon) {
+		this.type = type;
+		this.node = node;
+		this.polygon = polygon;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public T getNode() {
+		return node;
+	}
+
+	/**
+	 * @return the new polygon, or null, if the node was removed
+	 */
+	public PolygonSimple getPolygon() {
+		return polygon;
+	}
+
+	@Override
+	public String toString() {
+		return type + " " + node;
+	}
+}
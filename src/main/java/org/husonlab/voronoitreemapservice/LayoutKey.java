@@ -0,0 +1,134 @@
+/*
+ * LayoutKey.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+/**
+ * 128-bit content hash of everything that determines the layout of the children of a node: the desired area
+ * percentages of the children, in order, the clip polygon, the settings and the seed of the node
+ */
+public final class LayoutKey {
+	private final long high;
+	private final long low;
+
+	public LayoutKey(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * computes the key for a node
+	 *
+	 * @param percentages the desired area percentages of the children
+	 * @param polygon     the polygon to fit the children into
+	 * @param settings    the settings
+	 * @param seed        the seed of the node
+	 * @return key
+	 */
+	public static LayoutKey compute(double[] percentages, PolygonSimple polygon, Settings settings, long seed) {
+		var hasher = new Hasher();
+		hasher.add(seed);
+		hasher.add(settings.cancelAreaError ? 1 : 0);
+		hasher.add(settings.errorThreshold);
+		hasher.add(settings.cancelMaxIterat ? 1 : 0);
+		hasher.add(settings.maxIterat);
+		hasher.add(settings.cancelOnLocalError ? 1 : 0);
+		hasher.add(settings.boostConvergence);
+		hasher.add(settings.analyticSmallLayouts ? 1 : 0);
+		hasher.add(settings.getMultiStarts());
+		hasher.add(settings.getPolygonScaleFactor());
+
+		hasher.add(percentages.length);
+		for (var percentage : percentages)
+			hasher.add(percentage);
+
+		var n = polygon.getNumPoints();
+		var x = polygon.getXPoints();
+		var y = polygon.getYPoints();
+		hasher.add(n);
+		for (var i = 0; i < n; i++) {
+			hasher.add(x[i]);
+			hasher.add(y[i]);
+		}
+		hasher.add(polygon.getNumParts());
+		for (var part = 1; part < polygon.getNumParts(); part++)
+			hasher.add(polygon.getPartStart(part));
+		return new LayoutKey(hasher.high(), hasher.low());
+	}
+
+	public long getHigh() {
+		return high;
+	}
+
+	public long getLow() {
+		return low;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof LayoutKey that && high == that.high && low == that.low;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(high ^ low);
+	}
+
+	/**
+	 * @return the key as 32 hex digits
+	 */
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+
+	/**
+	 * two independent 64-bit hashes, each value is mixed in with the finalizer of SplitMix64
+	 */
+	private static class Hasher {
+		private long h1 = 0x243F6A8885A308D3L;
+		private long h2 = 0x13198A2E03707344L;
+
+		void add(double value) {
+			// normalize -0.0 and NaN
+			add(value == 0.0 ? 0L : Double.doubleToLongBits(value));
+		}
+
+		void add(long value) {
+			h1 = mix(h1 ^ value) + 0x9E3779B97F4A7C15L;
+			h2 = mix(h2 + value * 0xC2B2AE3D27D4EB4FL) ^ 0x165667B19E3779F9L;
+		}
+
+		long high() {
+			return mix(h1 ^ h2);
+		}
+
+		long low() {
+			return mix(h2 + 0x9E3779B97F4A7C15L * h1);
+		}
+
+		private static long mix(long z) {
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			return z ^ (z >>> 31);
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * LayoutSeriesComputation.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * computes a temporally coherent series of Voronoi tree maps for a hierarchy whose weights vary over time.
+ * <p>
+ * The tree is the same for all frames, only the weights change. The layout of the children of a node in frame t+1
+ * is warm-started from their final positions and weights in frame t, which keeps the layouts stable and needs far
+ * fewer iterations than computing each frame from scratch. The frames are pipelined across the worker pool: the
+ * layout of a node in frame t+1 only waits for the layout of its parent in frame t+1 and its own layout in frame t,
+ * so the top of frame t+1 is computed while the deep levels of frame t are still running. Only a few frames are
+ * started ahead of the oldest unfinished one, so that long series do not queue all of their jobs at once.
+ * <p>
+ * The engine, the maximum fan-out and the parallelism of the settings are used as by
+ * {@link VoronoiTreeMapComputation}. Only the Voronoi engine is warm-started, the raster engine computes each frame
+ * from scratch. Virtual groups are formed once, using the weights of the first frame, so that each node keeps the
+ * same siblings in all frames. A viewport is not used, as the frames are not shown while they are computed.
+ */
+public class LayoutSeriesComputation {
+	/**
+	 * the number of frames that may be started before the oldest unfinished frame is done
+	 */
+	private static final int FRAMES_IN_FLIGHT = 3;
+
+	/**
+	 * receives the polygon computed for a node in a frame
+	 */
+	public interface FrameResultConsumer<T> {
+		void accept(int frame, T node, PolygonSimple polygon);
+	}
+
+	/**
+	 * the final sites and polygons of the children of a node in one frame
+	 */
+	private static class FrameLayout {
+		final double[] x;
+		final double[] y;
+		final double[] weight;
+		final PolygonSimple[] polygons;
+
+		FrameLayout(int size) {
+			x = new double[size];
+			y = new double[size];
+			weight = new double[size];
+			polygons = new PolygonSimple[size];
+		}
+	}
+
+	/**
+	 * the nodes that have children, parents before children, with the index of their parent, their position among
+	 * the children of the parent, their level and their seed
+	 */
+	private static class NodeList<N> {
+		final List<N> nodes = new ArrayList<>();
+		final List<Integer> parentIndex = new ArrayList<>();
+		final List<Integer> positions = new ArrayList<>();
+		final List<Integer> levels = new ArrayList<>();
+		final List<Long> seeds = new ArrayList<>();
+
+		NodeList(N rootNode, Function<N, Collection<N>> childrenFunction, long seed) {
+			if (!childrenFunction.apply(rootNode).isEmpty())
+				add(rootNode, -1, -1, 0, seed);
+			for (var i = 0; i < nodes.size(); i++) {
+				var position = 0;
+				for (var child : childrenFunction.apply(nodes.get(i))) {
+					if (!childrenFunction.apply(child).isEmpty())
+						add(child, i, position, levels.get(i) + 1, ChildrenMapComputation.childSeed(seeds.get(i), position));
+					position++;
+				}
+			}
+		}
+
+		private void add(N node, int parent, int position, int level, long seed) {
+			nodes.add(node);
+			parentIndex.add(parent);
+			positions.add(position);
+			levels.add(level);
+			seeds.add(seed);
+		}
+
+		int size() {
+			return nodes.size();
+		}
+	}
+
+	/**
+	 * run the computation of a series of tree maps
+	 *
+	 * @param settings         algorithm settings
+	 * @param rootNode         the root node
+	 * @param childrenFunction gets children of a node, must be the same for all frames
+	 * @param weightFunctions  gets the weight of a node, one function per frame
+	 * @param rootPolygon      the root polygon to draw the maps into
+	 * @param resultConsumer   is called when the polygon for a node in a frame has been computed
+	 * @param <T>              the node type
+	 * @return number of node layouts computed, that is, the number of frames times the number of inner nodes
+	 * @throws java.util.concurrent.CompletionException if the computation of a layout failed
+	 */
+	public static <T> int run(Settings settings, T rootNode, Function<T, Collection<T>> childrenFunction, List<Function<T, Double>> weightFunctions, PolygonSimple rootPolygon, FrameResultConsumer<T> resultConsumer) {
+		return runAsync(settings, rootNode, childrenFunction, weightFunctions, rootPolygon, resultConsumer).join();
+	}
+
+	/**
+	 * starts the computation of a series of tree maps
+	 *
+	 * @param settings         algorithm settings
+	 * @param rootNode         the root node
+	 * @param childrenFunction gets children of a node, must be the same for all frames
+	 * @param weightFunctions  gets the weight of a node, one function per frame
+	 * @param rootPolygon      the root polygon to draw the maps into
+	 * @param resultConsumer   is called when the polygon for a node in a frame has been computed
+	 * @param <T>              the node type
+	 * @return completes with the number of node layouts computed, or exceptionally, with the first failure of the
+	 * computation of a layout, once no more layouts are running
+	 */
+	public static <T> CompletableFuture<Integer> runAsync(Settings settings, T rootNode, Function<T, Collection<T>> childrenFunction, List<Function<T, Double>> weightFunctions, PolygonSimple rootPolygon, FrameResultConsumer<T> resultConsumer) {
+		if (settings.getViewport() != null) {
+			settings = new Settings(settings);
+			settings.setViewport(null);
+		}
+		if (settings.getMaxFanOut() > 0 && !weightFunctions.isEmpty()) {
+			// lay out the tree with virtual groups, formed once, and report only the tree nodes, with their levels in the tree
+			var root = VirtualGrouping.apply(rootNode, childrenFunction, VoronoiTreeMapComputation.computeDesiredAreaMap(rootNode, childrenFunction, weightFunctions.get(0)), settings.getMaxFanOut(), settings.getGrouping());
+			var groupedWeightFunctions = new ArrayList<Function<VirtualGrouping.Node<T>, Double>>(weightFunctions.size());
+			for (var weightFunction : weightFunctions)
+				groupedWeightFunctions.add(v -> (v.isVirtual() ? 0.0 : weightFunction.apply(v.getNode())));
+			return runFrames(settings, root, VirtualGrouping.Node::getChildren, groupedWeightFunctions, rootPolygon, (frame, v, polygon) -> {
+				if (!v.isVirtual()) {
+					polygon.setLevel(v.getDepth() - 1);
+					resultConsumer.accept(frame, v.getNode(), polygon);
+				}
+			});
+		} else
+			return runFrames(settings, rootNode, childrenFunction, weightFunctions, rootPolygon, resultConsumer);
+	}
+
+	private static <N> CompletableFuture<Integer> runFrames(Settings settings, N rootNode, Function<N, Collection<N>> childrenFunction, List<Function<N, Double>> weightFunctions, PolygonSimple rootPolygon, FrameResultConsumer<N> resultConsumer) {
+		var nodes = new NodeList<>(rootNode, childrenFunction, settings.getSeed());
+		var frames = weightFunctions.size();
+		var scheduler = new NodeJobScheduler(settings, false);
+
+		var frameDone = new ArrayList<CompletableFuture<Void>>(frames);
+		var started = CompletableFuture.<List<CompletableFuture<FrameLayout>>>completedFuture(null);
+		for (var t = 0; t < frames; t++) {
+			var frame = t;
+			var gate = (t >= FRAMES_IN_FLIGHT ? frameDone.get(t - FRAMES_IN_FLIGHT) : CompletableFuture.<Void>completedFuture(null));
+			started = started.thenCombineAsync(gate, (previous, ignored) -> startFrame(settings, scheduler, nodes, childrenFunction, weightFunctions.get(frame), rootPolygon, frame, previous, resultConsumer), executor(scheduler));
+			frameDone.add(started.thenCompose(current -> CompletableFuture.allOf(current.toArray(new CompletableFuture<?>[0]))));
+		}
+
+		var result = CompletableFuture.allOf(frameDone.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> frames * nodes.size());
+		result.whenComplete((count, ex) -> scheduler.shutdown());
+		return result;
+	}
+
+	/**
+	 * runs the tasks of the futures as jobs of the scheduler, which are not ordered by level or viewport
+	 */
+	private static Executor executor(NodeJobScheduler scheduler) {
+		return job -> scheduler.submit(0, null, job);
+	}
+
+	/**
+	 * sets up the layouts of all nodes of a frame. The layout of a node waits for the layout of its parent in the
+	 * frame and for its own layout in the previous frame, and fails if either of them failed
+	 */
+	private static <N> List<CompletableFuture<FrameLayout>> startFrame(Settings settings, NodeJobScheduler scheduler, NodeList<N> nodes, Function<N, Collection<N>> childrenFunction, Function<N, Double> weightFunction, PolygonSimple rootPolygon, int frame, List<CompletableFuture<FrameLayout>> previous, FrameResultConsumer<N> resultConsumer) {
+		var current = new ArrayList<CompletableFuture<FrameLayout>>(nodes.size());
+		if (nodes.size() == 0)
+			return current;
+		var areaMap = VoronoiTreeMapComputation.computeDesiredAreaMap(nodes.nodes.get(0), childrenFunction, weightFunction);
+		var rootArea = rootPolygon.getArea();
+		var executor = executor(scheduler);
+		var done = CompletableFuture.<FrameLayout>completedFuture(null);
+		for (var i = 0; i < nodes.size(); i++) {
+			var node = nodes.nodes.get(i);
+			var level = nodes.levels.get(i);
+			var seed = nodes.seeds.get(i);
+			var position = nodes.positions.get(i);
+			var parentFuture = (i == 0 ? done : current.get(nodes.parentIndex.get(i)));
+			var previousFuture = (previous == null ? done : previous.get(i));
+			current.add(parentFuture.thenCombineAsync(previousFuture, (parentLayout, previousLayout) -> {
+				var polygon = (position == -1 ? rootPolygon : (parentLayout == null ? null : parentLayout.polygons[position]));
+				if (polygon == null)
+					return null;
+				return computeLayout(settings, scheduler, node, childrenFunction, areaMap::get, polygon, rootArea, level, seed, previousLayout, frame, resultConsumer);
+			}, executor));
+		}
+		return current;
+	}
+
+	/**
+	 * lays out the children of a node in one frame, warm-started from the previous frame, if given
+	 */
+	private static <N> FrameLayout computeLayout(Settings settings, NodeJobScheduler scheduler, N node, Function<N, Collection<N>> childrenFunction, Function<N, Double> areaFunction, PolygonSimple polygon, double rootArea, int level, long seed, FrameLayout previous, int frame, FrameResultConsumer<N> resultConsumer) {
+		var compute = ChildrenMapEngine.create(settings.getNodeSettings(level, polygon.getArea() / rootArea), seed);
+		scheduler.configure(compute);
+		if (previous != null && compute instanceof ChildrenMapComputation childrenMapComputation)
+			childrenMapComputation.setWarmStart(previous.x, previous.y, previous.weight);
+		var children = new ArrayList<>(childrenFunction.apply(node));
+		var childSites = compute.run(node, v -> children, areaFunction, polygon);
+		if (childSites == null)
+			return null;
+		var layout = new FrameLayout(childSites.size);
+		for (var index = 0; index < childSites.size; index++) {
+			var site = childSites.array[index];
+			if (site != null) {
+				var child = children.get(index);
+				var childPolygon = (settings.isLeanResults() ? new PolygonSimple(site.getPolygon()) : site.getPolygon());
+				childPolygon.setLevel(level);
+				layout.x[index] = site.getX();
+				layout.y[index] = site.getY();
+				layout.weight[index] = site.getWeight();
+				layout.polygons[index] = childPolygon;
+				synchronized (resultConsumer) {
+					resultConsumer.accept(frame, child, childPolygon);
+				}
+			} else
+				layout.x[index] = Double.NaN;
+		}
+		return layout;
+	}
+}
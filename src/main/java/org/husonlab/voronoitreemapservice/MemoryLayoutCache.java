@@ -0,0 +1,118 @@
+/*
+ * MemoryLayoutCache.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import java.util.LinkedHashMap;
+
+/**
+ * in-memory layout cache, bounded by the estimated memory footprint of its entries rather than by their number,
+ * evicting the least recently used entries first.
+ * <p>
+ * Optionally, the cache is backed by a second, larger cache, such as a {@link DiskLayoutCache}: layouts not found
+ * in memory are looked up there, and new layouts are written to both.
+ */
+public class MemoryLayoutCache implements LayoutCache {
+	/**
+	 * estimated size of a key and its map entry
+	 */
+	private static final long ENTRY_OVERHEAD = 96;
+
+	private final long maxBytes;
+	private final LayoutCache backing;
+	private final LinkedHashMap<LayoutKey, NodeLayout> map = new LinkedHashMap<>(16, 0.75f, true);
+	private long totalBytes;
+
+	/**
+	 * constructor
+	 *
+	 * @param maxBytes maximum estimated memory footprint of all cached layouts
+	 */
+	public MemoryLayoutCache(long maxBytes) {
+		this(maxBytes, null);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param maxBytes maximum estimated memory footprint of all cached layouts
+	 * @param backing  cache to fall back to, or null
+	 */
+	public MemoryLayoutCache(long maxBytes, LayoutCache backing) {
+		this.maxBytes = maxBytes;
+		this.backing = backing;
+	}
+
+	@Override
+	public NodeLayout get(LayoutKey key) {
+		synchronized (this) {
+			var layout = map.get(key);
+			if (layout != null)
+				return layout;
+		}
+		if (backing != null) {
+			var layout = backing.get(key);
+			if (layout != null)
+				add(key, layout);
+			return layout;
+		}
+		return null;
+	}
+
+	@Override
+	public void put(LayoutKey key, NodeLayout layout) {
+		add(key, layout);
+		if (backing != null)
+			backing.put(key, layout);
+	}
+
+	/**
+	 * clears this cache, but not the backing cache
+	 */
+	@Override
+	public synchronized void clear() {
+		map.clear();
+		totalBytes = 0;
+	}
+
+	public synchronized long getTotalBytes() {
+		return totalBytes;
+	}
+
+	public synchronized int size() {
+		return map.size();
+	}
+
+	private synchronized void add(LayoutKey key, NodeLayout layout) {
+		var bytes = ENTRY_OVERHEAD + layout.getMemoryFootprint();
+		if (bytes > maxBytes)
+			return;
+		var previous = map.put(key, layout);
+		if (previous != null)
+			totalBytes -= ENTRY_OVERHEAD + previous.getMemoryFootprint();
+		totalBytes += bytes;
+
+		var it = map.entrySet().iterator();
+		while (totalBytes > maxBytes && it.hasNext()) {
+			var entry = it.next();
+			it.remove();
+			totalBytes -= ENTRY_OVERHEAD + entry.getValue().getMemoryFootprint();
+		}
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * NodeJobScheduler.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.convexClip.ConvexClipper;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * runs the node jobs of a tree map computation on a fixed number of threads. Pending jobs are kept here, and each
+ * time a thread becomes free, it runs the job that comes first: if the settings have a {@link Viewport}, the job
+ * whose polygon has the largest visible area, then, in breadth-first mode, the job of the lowest level, and then the
+ * job that was submitted first. Jobs whose polygon is not visible at all are paused while there is other work, and
+ * run when nothing else is ready or running, so that a computation always finishes. A change of the viewport only
+ * marks the jobs for reordering, the threads that take the next job then reorder them.
+ * <p>
+ * The number of ready jobs is bounded. A job that is submitted while the bound is reached is run right away by
+ * the submitting thread, so that the tree is then computed depth-first, which finishes subtrees and releases their
+ * polygons, instead of queueing ever more jobs. When a thread has already nested too many jobs, it waits until a
+ * ready job has been taken, unless all other threads are waiting, too, so that one thread always makes progress.
+ * Only then may the bound be exceeded, by the children of the nodes that this thread is working on. Paused jobs are bounded separately by the same number, beyond it
+ * jobs that are not visible are queued as ready jobs after the visible ones.
+ */
+class NodeJobScheduler {
+	/**
+	 * bounds the nesting of jobs run by submitting threads, so that deep trees do not overflow the stack
+	 */
+	private static final int MAX_NESTED_JOBS = 64;
+	private static final ThreadLocal<int[]> nestedJobs = ThreadLocal.withInitial(() -> new int[1]);
+
+	private final int maxPendingJobs;
+	private final int numberOfThreads;
+	private final ExecutorService executor;
+	private final ParallelismController controller;
+	private final Viewport viewport;
+	private final AtomicBoolean viewportChanged = new AtomicBoolean();
+	private final Runnable viewportListener = () -> viewportChanged.set(true);
+	private final ConvexClipper clipper = new ConvexClipper();
+
+	private final PriorityQueue<Job> ready;
+	private final ArrayList<Job> paused = new ArrayList<>();
+	private long sequence = 0;
+	/**
+	 * the number of calls of runNext() that are submitted to the executor and have not yet taken a job, at least
+	 * the number of ready jobs
+	 */
+	private int calls = 0;
+	/**
+	 * the number of jobs taken by runNext() that have not finished yet
+	 */
+	private int running = 0;
+	/**
+	 * the number of threads that wait in submit() for the number of ready jobs to drop below the bound
+	 */
+	private int waiting = 0;
+
+	/**
+	 * constructor
+	 *
+	 * @param settings     the settings, which determine the number of threads, whether jobs may use helper threads,
+	 *                     and the viewport
+	 * @param breadthFirst run pending jobs of lower levels first
+	 */
+	NodeJobScheduler(Settings settings, boolean breadthFirst) {
+		numberOfThreads = settings.getNumberOfThreads();
+		maxPendingJobs = settings.getMaxPendingJobs();
+		executor = Executors.newFixedThreadPool(numberOfThreads);
+		controller = (settings.isAdaptiveParallelism() && numberOfThreads > 1 ? new ParallelismController(numberOfThreads) : null);
+
+		Comparator<Job> comparator = Comparator.comparingDouble(job -> -job.visibleArea);
+		if (breadthFirst)
+			comparator = comparator.thenComparingInt(job -> job.level);
+		ready = new PriorityQueue<>(comparator.thenComparingLong(job -> job.sequence));
+
+		viewport = settings.getViewport();
+		if (viewport != null)
+			viewport.addListener(viewportListener);
+	}
+
+	/**
+	 * submits the job of a node
+	 *
+	 * @param level   the level of the node, 0 for the root
+	 * @param polygon the polygon of the node, which the job divides among the children
+	 * @param job     the job
+	 */
+	void submit(int level, PolygonSimple polygon, Runnable job) {
+		var nested = nestedJobs.get();
+		if (maxPendingJobs > 0 && nested[0] < MAX_NESTED_JOBS && isFull()) {
+			nested[0]++;
+			try {
+				job.run();
+			} finally {
+				nested[0]--;
+			}
+			return;
+		}
+		int missing;
+		synchronized (this) {
+			while (maxPendingJobs > 0 && ready.size() >= maxPendingJobs && waiting < numberOfThreads - 1) {
+				waiting++;
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				} finally {
+					waiting--;
+				}
+			}
+			var entry = new Job(level, sequence++, polygon, job);
+			if (!prioritize(entry) && (maxPendingJobs == 0 || paused.size() < maxPendingJobs))
+				paused.add(entry);
+			else
+				ready.add(entry);
+			missing = callsMissing();
+		}
+		execute(missing);
+	}
+
+	private synchronized boolean isFull() {
+		return ready.size() >= maxPendingJobs;
+	}
+
+	/**
+	 * lets the engine of a job use helper threads, if enabled
+	 */
+	void configure(ChildrenMapEngine engine) {
+		if (controller != null)
+			controller.apply(engine);
+	}
+
+	void shutdown() {
+		if (viewport != null)
+			viewport.removeListener(viewportListener);
+		executor.shutdownNow();
+		if (controller != null)
+			controller.close();
+	}
+
+	/**
+	 * runs the first ready job. There is a call for each ready job, but a job may have been paused in between
+	 */
+	private void runNext() {
+		Job job;
+		int missing;
+		synchronized (this) {
+			calls--;
+			if (viewportChanged.getAndSet(false))
+				reprioritize();
+			job = ready.poll();
+			if (job != null) {
+				running++;
+				if (waiting > 0)
+					notifyAll();
+			}
+			missing = callsMissing();
+		}
+		execute(missing);
+		try {
+			if (job != null)
+				job.runnable.run();
+		} finally {
+			if (job != null) {
+				synchronized (this) {
+					running--;
+					missing = callsMissing();
+				}
+				execute(missing);
+			}
+			if (controller != null)
+				controller.jobFinished();
+		}
+	}
+
+	/**
+	 * submits the given number of calls of runNext() to the executor
+	 */
+	private void execute(int missing) {
+		for (var i = 0; i < missing; i++) {
+			if (controller != null)
+				controller.jobSubmitted();
+			executor.execute(this::runNext);
+		}
+	}
+
+	/**
+	 * resumes the paused jobs, if nothing else is ready or running, and counts the calls of runNext() that are
+	 * needed for the ready jobs
+	 *
+	 * @return the number of calls to submit
+	 */
+	private int callsMissing() {
+		if (ready.isEmpty() && running == 0 && !paused.isEmpty()) {
+			ready.addAll(paused);
+			paused.clear();
+		}
+		var missing = Math.max(0, ready.size() - calls);
+		calls += missing;
+		return missing;
+	}
+
+	/**
+	 * sets the visible area of a job
+	 *
+	 * @return false, if the job is to be paused
+	 */
+	private boolean prioritize(Job job) {
+		var rectangle = (viewport == null ? null : viewport.get());
+		if (rectangle == null) {
+			job.visibleArea = 0;
+			return true;
+		}
+		job.visibleArea = Viewport.visibleArea(rectangle, job.polygon, clipper);
+		return job.visibleArea > 0;
+	}
+
+	/**
+	 * reorders the ready jobs, and pauses or resumes jobs, for a changed viewport. Called by the thread that takes
+	 * the next job, while holding the lock
+	 */
+	private void reprioritize() {
+		var jobs = new ArrayList<>(ready);
+		jobs.addAll(paused);
+		ready.clear();
+		paused.clear();
+		for (var job : jobs) {
+			if (prioritize(job) || (maxPendingJobs > 0 && paused.size() >= maxPendingJobs))
+				ready.add(job);
+			else
+				paused.add(job);
+		}
+	}
+
+	private static final class Job {
+		private final int level;
+		private final long sequence;
+		private final PolygonSimple polygon;
+		private final Runnable runnable;
+		private double visibleArea;
+
+		private Job(int level, long sequence, PolygonSimple polygon, Runnable runnable) {
+			this.level = level;
+			this.sequence = sequence;
+			this.polygon = polygon;
+			this.runnable = runnable;
+		}
+	}
+}
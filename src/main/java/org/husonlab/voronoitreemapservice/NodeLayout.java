@@ -0,0 +1,228 @@
+/*
+ * NodeLayout.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.datastructure.OpenList;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Site;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * the final layout of the children of a node: the position and weight of each child's site and its polygon,
+ * in the order of the children. This is what a {@link LayoutCache} stores.
+ */
+public class NodeLayout {
+	private final double[] x;
+	private final double[] y;
+	private final double[] weight;
+	private final double[][] polygonX;
+	private final double[][] polygonY;
+	/**
+	 * start index of each part of polygon i, null, if it consists of a single part
+	 */
+	private final int[][] polygonParts;
+
+	private NodeLayout(double[] x, double[] y, double[] weight, double[][] polygonX, double[][] polygonY, int[][] polygonParts) {
+		this.x = x;
+		this.y = y;
+		this.weight = weight;
+		this.polygonX = polygonX;
+		this.polygonY = polygonY;
+		this.polygonParts = polygonParts;
+	}
+
+	/**
+	 * copies the layout from computed sites
+	 *
+	 * @param sites the sites, in the order of the children
+	 * @return layout, or null, if some site has no polygon
+	 */
+	public static NodeLayout create(OpenList sites) {
+		var n = sites.size;
+		var x = new double[n];
+		var y = new double[n];
+		var weight = new double[n];
+		var polygonX = new double[n][];
+		var polygonY = new double[n][];
+		var polygonParts = new int[n][];
+		for (var i = 0; i < n; i++) {
+			var site = sites.array[i];
+			x[i] = site.getX();
+			y[i] = site.getY();
+			weight[i] = site.getWeight();
+			var polygon = site.getPolygon();
+			if (polygon == null)
+				return null;
+			polygonX[i] = Arrays.copyOf(polygon.getXPoints(), polygon.getNumPoints());
+			polygonY[i] = Arrays.copyOf(polygon.getYPoints(), polygon.getNumPoints());
+			polygonParts[i] = partStarts(polygon);
+		}
+		return new NodeLayout(x, y, weight, polygonX, polygonY, polygonParts);
+	}
+
+	/**
+	 * creates sites for the given children from this layout, each with a new copy of its polygon
+	 *
+	 * @param children    the children, their number must match the layout
+	 * @param percentages the desired area percentages of the children
+	 * @return sites, with the children set as data
+	 */
+	public <T> OpenList createSites(List<T> children, double[] percentages) {
+		var sites = new OpenList(size());
+		for (var i = 0; i < size(); i++) {
+			var site = new Site(x[i], y[i], weight[i], percentages[i]);
+			site.setPolygon(getPolygon(i));
+			site.setData(children.get(i));
+			sites.add(site);
+		}
+		return sites;
+	}
+
+	public int size() {
+		return x.length;
+	}
+
+	public double getX(int i) {
+		return x[i];
+	}
+
+	public double getY(int i) {
+		return y[i];
+	}
+
+	public double getWeight(int i) {
+		return weight[i];
+	}
+
+	/**
+	 * @return a new copy of polygon i
+	 */
+	public PolygonSimple getPolygon(int i) {
+		if (polygonParts[i] == null)
+			return new PolygonSimple(polygonX[i], polygonY[i], polygonX[i].length);
+		var polygon = new PolygonSimple(polygonX[i].length);
+		var parts = polygonParts[i];
+		for (var part = 0; part < parts.length; part++) {
+			polygon.startNewPart();
+			var end = (part + 1 < parts.length ? parts[part + 1] : polygonX[i].length);
+			for (var k = parts[part]; k < end; k++)
+				polygon.add(polygonX[i][k], polygonY[i][k]);
+		}
+		return polygon;
+	}
+
+	/**
+	 * @return the start index of each part of the polygon, or null, if it consists of a single part
+	 */
+	private static int[] partStarts(PolygonSimple polygon) {
+		if (polygon.getNumParts() == 1)
+			return null;
+		var parts = new int[polygon.getNumParts()];
+		for (var part = 0; part < parts.length; part++)
+			parts[part] = polygon.getPartStart(part);
+		return parts;
+	}
+
+	/**
+	 * estimates the heap memory used by this layout, assuming 16 bytes per object and array header and 8 bytes
+	 * per reference
+	 *
+	 * @return estimated number of bytes
+	 */
+	public long getMemoryFootprint() {
+		var n = size();
+		long bytes = 16 + 6 * 8 + 3 * (16 + 8L * n) + 3 * (16 + 8L * n);
+		for (var i = 0; i < n; i++) {
+			bytes += 2 * (16 + 8L * polygonX[i].length);
+			if (polygonParts[i] != null)
+				bytes += 16 + 4L * polygonParts[i].length;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @return number of bytes used by {@link #write(ByteBuffer)}
+	 */
+	public int getByteSize() {
+		var bytes = 4 + 3 * 8 * size();
+		for (var i = 0; i < size(); i++)
+			bytes += 4 + 2 * 8 * polygonX[i].length + 4 * (polygonParts[i] == null ? 1 : polygonParts[i].length);
+		return bytes;
+	}
+
+	/**
+	 * writes the layout to a buffer
+	 */
+	public void write(ByteBuffer buffer) {
+		buffer.putInt(size());
+		for (var i = 0; i < size(); i++) {
+			buffer.putDouble(x[i]);
+			buffer.putDouble(y[i]);
+			buffer.putDouble(weight[i]);
+			buffer.putInt(polygonX[i].length);
+			for (var k = 0; k < polygonX[i].length; k++) {
+				buffer.putDouble(polygonX[i][k]);
+				buffer.putDouble(polygonY[i][k]);
+			}
+			// the number of parts, followed by the start of each part after the first
+			var parts = polygonParts[i];
+			buffer.putInt(parts == null ? 1 : parts.length);
+			if (parts != null) {
+				for (var part = 1; part < parts.length; part++)
+					buffer.putInt(parts[part]);
+			}
+		}
+	}
+
+	/**
+	 * reads a layout written by {@link #write(ByteBuffer)}
+	 */
+	public static NodeLayout read(ByteBuffer buffer) {
+		var n = buffer.getInt();
+		var x = new double[n];
+		var y = new double[n];
+		var weight = new double[n];
+		var polygonX = new double[n][];
+		var polygonY = new double[n][];
+		var polygonParts = new int[n][];
+		for (var i = 0; i < n; i++) {
+			x[i] = buffer.getDouble();
+			y[i] = buffer.getDouble();
+			weight[i] = buffer.getDouble();
+			var m = buffer.getInt();
+			polygonX[i] = new double[m];
+			polygonY[i] = new double[m];
+			for (var k = 0; k < m; k++) {
+				polygonX[i][k] = buffer.getDouble();
+				polygonY[i][k] = buffer.getDouble();
+			}
+			var numberOfParts = buffer.getInt();
+			if (numberOfParts > 1) {
+				polygonParts[i] = new int[numberOfParts];
+				for (var part = 1; part < numberOfParts; part++)
+					polygonParts[i][part] = buffer.getInt();
+			}
+		}
+		return new NodeLayout(x, y, weight, polygonX, polygonY, polygonParts);
+	}
+}
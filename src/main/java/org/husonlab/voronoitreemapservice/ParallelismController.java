@@ -0,0 +1,96 @@
+/*
+ * ParallelismController.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * shares the threads between and within node jobs. Near the root, there are few node jobs, each with many
+ * children, and the power diagrams of the running jobs get helper threads for clipping the cells. Deeper in the tree,
+ * there are more node jobs than threads, and each job runs on a single thread.
+ * <p>
+ * The number of threads that a job may use is the number of threads divided by the number of node jobs that are
+ * submitted and not yet finished, and it is asked again for each power diagram, so that it adapts while a job runs.
+ */
+public class ParallelismController implements AutoCloseable {
+	private final int numberOfThreads;
+	private final AtomicInteger pendingJobs = new AtomicInteger();
+	private final ExecutorService helpers;
+
+	/**
+	 * constructor
+	 *
+	 * @param numberOfThreads the number of threads of the computation, at least 2
+	 */
+	public ParallelismController(int numberOfThreads) {
+		// more threads than cores would only add overhead within a job
+		this.numberOfThreads = Math.min(numberOfThreads, Runtime.getRuntime().availableProcessors());
+		// the thread of a node job takes part in its own work, so one thread less suffices
+		helpers = Executors.newFixedThreadPool(Math.max(1, this.numberOfThreads - 1), runnable -> {
+			var thread = new Thread(runnable, "voronoi-helper");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * call before submitting a node job
+	 */
+	public void jobSubmitted() {
+		pendingJobs.incrementAndGet();
+	}
+
+	/**
+	 * call when a node job has finished
+	 */
+	public void jobFinished() {
+		pendingJobs.decrementAndGet();
+	}
+
+	/**
+	 * @return the number of threads that a running node job may currently use
+	 */
+	public int getIntraNodeParallelism() {
+		var pending = Math.max(1, pendingJobs.get());
+		return (pending >= numberOfThreads ? 1 : numberOfThreads / pending);
+	}
+
+	/**
+	 * @return the executor for helper tasks within node jobs
+	 */
+	public Executor getHelpers() {
+		return helpers;
+	}
+
+	/**
+	 * configures the given engine to use helper threads as permitted by this controller
+	 */
+	public void apply(ChildrenMapEngine engine) {
+		engine.setParallelism(helpers, this::getIntraNodeParallelism);
+	}
+
+	@Override
+	public void close() {
+		helpers.shutdownNow();
+	}
+}
@@ -0,0 +1,271 @@
+/*
+ * PolygonStore.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * columnar store for the polygons of a Voronoi tree map, for very large layouts.
+ * <p>
+ * All coordinates are kept in one flat buffer of interleaved x and y values, in double or float precision.
+ * Node i owns the points offsets[i] ... offsets[i+1]-1, and its level and the index of its parent are kept in
+ * int arrays. Nodes are numbered in the order in which their polygons are computed, a parent always comes before
+ * its children. The root is not stored, its children have parent -1. A polygon that consists of several parts also
+ * owns the part starts partStarts[partOffsets[i]] ... partStarts[partOffsets[i+1]-1] of its parts after the first.
+ * Polygons are added concurrently by the computation, the store should be read once the computation has finished.
+ */
+public class PolygonStore<T> {
+	private final boolean singlePrecision;
+	private double[] doubleCoordinates;
+	private float[] floatCoordinates;
+	private int[] offsets;
+	private int[] partOffsets;
+	private int[] partStarts;
+	private int[] levels;
+	private int[] parents;
+	private Object[] nodes;
+	private int size;
+
+	/**
+	 * constructor, using double precision
+	 */
+	public PolygonStore() {
+		this(false);
+	}
+
+	/**
+	 * constructor
+	 *
+	 * @param singlePrecision if true, coordinates are stored as floats
+	 */
+	public PolygonStore(boolean singlePrecision) {
+		this.singlePrecision = singlePrecision;
+		if (singlePrecision)
+			floatCoordinates = new float[1024];
+		else
+			doubleCoordinates = new double[1024];
+		offsets = new int[65];
+		partOffsets = new int[65];
+		partStarts = new int[16];
+		levels = new int[64];
+		parents = new int[64];
+		nodes = new Object[64];
+	}
+
+	/**
+	 * adds the polygon for a node
+	 *
+	 * @param node    the node
+	 * @param parent  the index of the parent node, or -1
+	 * @param level   the level of the node
+	 * @param polygon its polygon
+	 * @return the index of the node
+	 */
+	public synchronized int add(T node, int parent, int level, PolygonSimple polygon) {
+		var n = polygon.getNumPoints();
+		var x = polygon.getXPoints();
+		var y = polygon.getYPoints();
+
+		if (size == levels.length) {
+			var capacity = Math.max(16, 2 * size);
+			offsets = Arrays.copyOf(offsets, capacity + 1);
+			partOffsets = Arrays.copyOf(partOffsets, capacity + 1);
+			levels = Arrays.copyOf(levels, capacity);
+			parents = Arrays.copyOf(parents, capacity);
+			nodes = Arrays.copyOf(nodes, capacity);
+		}
+		var start = offsets[size];
+		var end = 2 * (start + n);
+		if (singlePrecision) {
+			if (end > floatCoordinates.length)
+				floatCoordinates = Arrays.copyOf(floatCoordinates, Math.max(end, 2 * floatCoordinates.length));
+			for (var i = 0; i < n; i++) {
+				floatCoordinates[2 * (start + i)] = (float) x[i];
+				floatCoordinates[2 * (start + i) + 1] = (float) y[i];
+			}
+		} else {
+			if (end > doubleCoordinates.length)
+				doubleCoordinates = Arrays.copyOf(doubleCoordinates, Math.max(end, 2 * doubleCoordinates.length));
+			for (var i = 0; i < n; i++) {
+				doubleCoordinates[2 * (start + i)] = x[i];
+				doubleCoordinates[2 * (start + i) + 1] = y[i];
+			}
+		}
+		offsets[size + 1] = start + n;
+		var numberOfParts = polygon.getNumParts();
+		var partOffset = partOffsets[size];
+		if (partOffset + numberOfParts - 1 > partStarts.length)
+			partStarts = Arrays.copyOf(partStarts, Math.max(partOffset + numberOfParts - 1, 2 * partStarts.length));
+		for (var part = 1; part < numberOfParts; part++)
+			partStarts[partOffset + part - 1] = polygon.getPartStart(part);
+		partOffsets[size + 1] = partOffset + numberOfParts - 1;
+		levels[size] = level;
+		parents[size] = parent;
+		nodes[size] = node;
+		return size++;
+	}
+
+	/**
+	 * releases unused capacity, to be called once the computation has finished
+	 */
+	public synchronized void trimToSize() {
+		var points = offsets[size];
+		if (singlePrecision)
+			floatCoordinates = Arrays.copyOf(floatCoordinates, 2 * points);
+		else
+			doubleCoordinates = Arrays.copyOf(doubleCoordinates, 2 * points);
+		offsets = Arrays.copyOf(offsets, size + 1);
+		partOffsets = Arrays.copyOf(partOffsets, size + 1);
+		partStarts = Arrays.copyOf(partStarts, partOffsets[size]);
+		levels = Arrays.copyOf(levels, size);
+		parents = Arrays.copyOf(parents, size);
+		nodes = Arrays.copyOf(nodes, size);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	@SuppressWarnings("unchecked")
+	public T getNode(int index) {
+		return (T) nodes[index];
+	}
+
+	public int getLevel(int index) {
+		return levels[index];
+	}
+
+	/**
+	 * @return index of parent, or -1, if the parent is the root
+	 */
+	public int getParent(int index) {
+		return parents[index];
+	}
+
+	public int getNumPoints(int index) {
+		return offsets[index + 1] - offsets[index];
+	}
+
+	public int getNumParts(int index) {
+		return 1 + partOffsets[index + 1] - partOffsets[index];
+	}
+
+	/**
+	 * @return the first point of the given part of the polygon of a node
+	 */
+	public int getPartStart(int index, int part) {
+		return (part == 0 ? 0 : partStarts[partOffsets[index] + part - 1]);
+	}
+
+	public double getX(int index, int point) {
+		var pos = 2 * (offsets[index] + point);
+		return (singlePrecision ? floatCoordinates[pos] : doubleCoordinates[pos]);
+	}
+
+	public double getY(int index, int point) {
+		var pos = 2 * (offsets[index] + point) + 1;
+		return (singlePrecision ? floatCoordinates[pos] : doubleCoordinates[pos]);
+	}
+
+	/**
+	 * gets a lightweight view of the polygon of a node
+	 */
+	public View getView(int index) {
+		return new View(index);
+	}
+
+	/**
+	 * calls the consumer for each node and the view of its polygon, in the order of computation
+	 */
+	public void forEach(BiConsumer<T, View> consumer) {
+		for (var i = 0; i < size; i++)
+			consumer.accept(getNode(i), new View(i));
+	}
+
+	/**
+	 * a view of a single polygon in the store, which does not copy any coordinates
+	 */
+	public class View {
+		private final int index;
+
+		private View(int index) {
+			this.index = index;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public T getNode() {
+			return PolygonStore.this.getNode(index);
+		}
+
+		public int getLevel() {
+			return PolygonStore.this.getLevel(index);
+		}
+
+		public int getParent() {
+			return PolygonStore.this.getParent(index);
+		}
+
+		public int getNumPoints() {
+			return PolygonStore.this.getNumPoints(index);
+		}
+
+		public int getNumParts() {
+			return PolygonStore.this.getNumParts(index);
+		}
+
+		public int getPartStart(int part) {
+			return PolygonStore.this.getPartStart(index, part);
+		}
+
+		public double getX(int point) {
+			return PolygonStore.this.getX(index, point);
+		}
+
+		public double getY(int point) {
+			return PolygonStore.this.getY(index, point);
+		}
+
+		/**
+		 * copies the polygon into a new simple polygon
+		 */
+		public PolygonSimple toPolygonSimple() {
+			var n = getNumPoints();
+			var polygon = new PolygonSimple(n);
+			for (var part = 0; part < getNumParts(); part++) {
+				polygon.startNewPart();
+				var end = (part + 1 < getNumParts() ? getPartStart(part + 1) : n);
+				for (var i = getPartStart(part); i < end; i++)
+					polygon.add(getX(i), getY(i));
+			}
+			polygon.setLevel(getLevel());
+			return polygon;
+		}
+	}
+}
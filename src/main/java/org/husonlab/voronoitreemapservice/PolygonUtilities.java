@@ -20,9 +20,12 @@
 package org.husonlab.voronoitreemapservice;
 
 import javafx.geometry.Point2D;
-import javafx.scene.shape.Polygon;
+import javafx.scene.shape.*;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+
 /**
  * some simple polygon utilities
  * Daniel Huson, 5.2023
@@ -56,6 +59,32 @@ public class PolygonUtilities {
 		return polygon;
 	}
 
+	/**
+	 * convert simple polygon to a shape, which is a polygon, if it consists of a single part, and otherwise a path
+	 * with one closed subpath per part
+	 *
+	 * @param polygonSimple simple polygon
+	 * @return shape
+	 */
+	public static Shape shape(PolygonSimple polygonSimple) {
+		if (polygonSimple.getNumParts() == 1)
+			return polygon(polygonSimple);
+		var bounds = polygonSimple.getBounds();
+		var x = polygonSimple.getXPoints();
+		var y = polygonSimple.getYPoints();
+		var path = new Path();
+		for (var part = 0; part < polygonSimple.getNumParts(); part++) {
+			var start = polygonSimple.getPartStart(part);
+			path.getElements().add(new MoveTo(x[start] - bounds.getMinX(), y[start] - bounds.getMinY()));
+			for (var i = start + 1; i < polygonSimple.getPartEnd(part); i++)
+				path.getElements().add(new LineTo(x[i] - bounds.getMinX(), y[i] - bounds.getMinY()));
+			path.getElements().add(new ClosePath());
+		}
+		path.setTranslateX(bounds.getMinX());
+		path.setTranslateY(bounds.getMinY());
+		return path;
+	}
+
 	/**
 	 * computes the center of a polygon
 	 *
@@ -92,4 +121,100 @@ public class PolygonUtilities {
 		}
 		return polygon;
 	}
+
+	/**
+	 * computes a single polygon for a region with holes, to be used as a (non-convex) root polygon.
+	 * Each hole is connected to the outer boundary, or to a hole that was already connected, by a bridge edge that is
+	 * traversed in both directions. The result is weakly simple, bridges have zero width and do not change area or
+	 * containment.
+	 *
+	 * @param outer the outer boundary
+	 * @param holes the holes, which must be disjoint and lie inside the outer boundary
+	 * @return polygon with holes
+	 */
+	public static PolygonSimple polygonWithHoles(PolygonSimple outer, PolygonSimple... holes) {
+		var ring = new ArrayList<double[]>();
+		addPoints(ring, outer, outer.getSignedArea() > 0);
+
+		var remaining = new ArrayList<ArrayList<double[]>>();
+		for (var hole : holes) {
+			var list = new ArrayList<double[]>();
+			addPoints(list, hole, hole.getSignedArea() < 0);
+			remaining.add(list);
+		}
+		// connect the hole that reaches furthest to the right first, so that its bridge cannot be blocked by the others
+		remaining.sort(Comparator.comparingDouble(list -> -list.stream().mapToDouble(p -> p[0]).max().orElse(0)));
+
+		while (!remaining.isEmpty()) {
+			var hole = remaining.remove(0);
+			var h = 0;
+			for (var i = 1; i < hole.size(); i++) {
+				if (hole.get(i)[0] > hole.get(h)[0])
+					h = i;
+			}
+			var hx = hole.get(h)[0];
+			var hy = hole.get(h)[1];
+
+			// the bridge goes to the closest ring point that can be reached without crossing any boundary
+			var best = -1;
+			var bestDistance = Double.MAX_VALUE;
+			for (var r = 0; r < ring.size(); r++) {
+				var rx = ring.get(r)[0];
+				var ry = ring.get(r)[1];
+				var distance = (rx - hx) * (rx - hx) + (ry - hy) * (ry - hy);
+				if (distance < bestDistance && !crossesAny(hx, hy, rx, ry, ring) && !crossesAny(hx, hy, rx, ry, hole)
+					&& remaining.stream().noneMatch(other -> crossesAny(hx, hy, rx, ry, other))) {
+					best = r;
+					bestDistance = distance;
+				}
+			}
+			if (best == -1) { // only for degenerate input, use the closest point
+				for (var r = 0; r < ring.size(); r++) {
+					var distance = Math.hypot(ring.get(r)[0] - hx, ring.get(r)[1] - hy);
+					if (distance < bestDistance) {
+						best = r;
+						bestDistance = distance;
+					}
+				}
+			}
+
+			var spliced = new ArrayList<double[]>(ring.size() + hole.size() + 2);
+			spliced.addAll(ring.subList(0, best + 1));
+			for (var i = 0; i <= hole.size(); i++)
+				spliced.add(hole.get((h + i) % hole.size()));
+			spliced.add(ring.get(best));
+			spliced.addAll(ring.subList(best + 1, ring.size()));
+			ring = spliced;
+		}
+
+		var polygon = new PolygonSimple(ring.size());
+		for (var p : ring)
+			polygon.add(p[0], p[1]);
+		return polygon;
+	}
+
+	private static void addPoints(ArrayList<double[]> list, PolygonSimple polygon, boolean keepOrientation) {
+		var n = polygon.getNumPoints();
+		for (var i = 0; i < n; i++) {
+			var j = (keepOrientation ? i : n - 1 - i);
+			list.add(new double[]{polygon.getXPoints()[j], polygon.getYPoints()[j]});
+		}
+	}
+
+	/**
+	 * does the segment (ax,ay)-(bx,by) properly cross any edge of the given closed ring?
+	 */
+	private static boolean crossesAny(double ax, double ay, double bx, double by, ArrayList<double[]> ring) {
+		for (int i = 0, j = ring.size() - 1; i < ring.size(); j = i++) {
+			var c = ring.get(j);
+			var d = ring.get(i);
+			var c1 = Math.signum((bx - ax) * (c[1] - ay) - (by - ay) * (c[0] - ax));
+			var c2 = Math.signum((bx - ax) * (d[1] - ay) - (by - ay) * (d[0] - ax));
+			var c3 = Math.signum((d[0] - c[0]) * (ay - c[1]) - (d[1] - c[1]) * (ax - c[0]));
+			var c4 = Math.signum((d[0] - c[0]) * (by - c[1]) - (d[1] - c[1]) * (bx - c[0]));
+			if (c1 * c2 < 0 && c3 * c4 < 0)
+				return true;
+		}
+		return false;
+	}
 }
@@ -0,0 +1,115 @@
+/*
+ * QualityProfile.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * level-dependent quality settings: the error threshold and the maximum number of iterations used for the
+ * children of a node can be set per level, and, below a given level, can be loosened in proportion to how small the
+ * polygon of the node is compared to the root polygon. An area error of a few percent in a small cell deep in the
+ * tree moves the borders of the cell by far less than the same error in the root, so it is not visible, but costs
+ * as many iterations.
+ */
+public class QualityProfile {
+	private final Map<Integer, Double> levelErrorThreshold = new HashMap<>();
+	private final Map<Integer, Integer> levelMaxIterat = new HashMap<>();
+	private int adaptiveFromLevel = Integer.MAX_VALUE;
+	private double maxErrorThreshold = 0.25;
+	private int minIterat = 50;
+
+	/**
+	 * creates an adaptive profile: the settings are used unchanged for levels 0-2, below that, the error threshold
+	 * is divided, and the iteration cap multiplied, by the square root of the area of the node's polygon relative to
+	 * the root polygon, up to an error threshold of 0.25 and down to 50 iterations. A relative error e in a polygon of
+	 * relative area r is an absolute area error of about e*r times the root area, spread along a border of length
+	 * about sqrt(r) times that of the root, so dividing e by sqrt(r) keeps the displacement of the borders, that is,
+	 * the visible error, about the same as in the root. The absolute area error per cell still shrinks with sqrt(r)
+	 *
+	 * @return profile
+	 */
+	public static QualityProfile adaptive() {
+		var profile = new QualityProfile();
+		profile.setAdaptiveFromLevel(3);
+		return profile;
+	}
+
+	/**
+	 * sets the error threshold and maximum number of iterations for a level, overriding everything else
+	 *
+	 * @param level          the level of the node whose children are laid out, 0 for the root
+	 * @param errorThreshold the error threshold
+	 * @param maxIterat      the maximum number of iterations
+	 * @return this
+	 */
+	public QualityProfile setLevel(int level, double errorThreshold, int maxIterat) {
+		levelErrorThreshold.put(level, errorThreshold);
+		levelMaxIterat.put(level, maxIterat);
+		return this;
+	}
+
+	public int getAdaptiveFromLevel() {
+		return adaptiveFromLevel;
+	}
+
+	/**
+	 * sets the first level at which the settings are loosened according to the area of the node's polygon
+	 */
+	public void setAdaptiveFromLevel(int adaptiveFromLevel) {
+		this.adaptiveFromLevel = adaptiveFromLevel;
+	}
+
+	public double getMaxErrorThreshold() {
+		return maxErrorThreshold;
+	}
+
+	public void setMaxErrorThreshold(double maxErrorThreshold) {
+		this.maxErrorThreshold = maxErrorThreshold;
+	}
+
+	public int getMinIterat() {
+		return minIterat;
+	}
+
+	public void setMinIterat(int minIterat) {
+		this.minIterat = minIterat;
+	}
+
+	/**
+	 * adjusts the error threshold and maximum number of iterations of the given settings for a node
+	 *
+	 * @param settings     a copy of the settings, which is modified
+	 * @param level        the level of the node, 0 for the root
+	 * @param relativeArea the area of the polygon of the node divided by the area of the root polygon
+	 */
+	public void apply(Settings settings, int level, double relativeArea) {
+		if (levelErrorThreshold.containsKey(level)) {
+			settings.errorThreshold = levelErrorThreshold.get(level);
+			settings.maxIterat = levelMaxIterat.get(level);
+		} else if (level >= adaptiveFromLevel && relativeArea > 0 && relativeArea < 1) {
+			var factor = Math.sqrt(relativeArea);
+			if (settings.errorThreshold < maxErrorThreshold)
+				settings.errorThreshold = Math.min(maxErrorThreshold, settings.errorThreshold / factor);
+			if (settings.maxIterat > minIterat)
+				settings.maxIterat = Math.max(minIterat, (int) (settings.maxIterat * factor));
+		}
+	}
+}
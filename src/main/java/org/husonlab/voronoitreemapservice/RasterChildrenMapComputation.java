@@ -0,0 +1,425 @@
+/*
+ * RasterChildrenMapComputation.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.convexClip.ClipRegion;
+import kn.uni.voronoitreemap.datastructure.OpenList;
+import kn.uni.voronoitreemap.diagram.PowerDiagram;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Site;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * approximate computation of the map of the children of a node on a raster, for instant previews of huge trees.
+ * <p>
+ * The clip polygon is rasterized by scanlines into a grid with about {@link #PIXELS_PER_CHILD} pixels per child.
+ * Each iteration assigns every pixel to the site of smallest power distance by jump flooding, moves each site to
+ * the centroid of its pixels and adapts its weight by the difference between its desired and its actual number of
+ * pixels. After the first iteration, the jump flooding starts from the previous assignment and uses only a few
+ * short steps. Finally, the cells are vectorized by computing the power diagram of the sites, clipped by the
+ * polygon. If the cell of a site is empty, the weights of the sites that dominate it are lowered until it has one.
+ * Large grids are processed by rows, using the helper threads given by {@link #setParallelism}, if any.
+ */
+public class RasterChildrenMapComputation implements ChildrenMapEngine {
+	public static final int PIXELS_PER_CHILD = 100;
+	private static final int MIN_PIXELS = 32 * 32;
+	private static final int MAX_PIXELS = 1024 * 1024;
+	private static final int MAX_ITERATIONS = 25;
+	private static final int PARALLEL_PIXELS = 256 * 256;
+	private static final int MIN_ROWS_PER_TASK = 32;
+	private static final double NEARLY_ONE = 0.999;
+
+	private final Settings settings;
+	private final SplittableRandom random;
+
+	private Executor executor;
+	private IntSupplier parallelism;
+
+	/**
+	 * constructor
+	 *
+	 * @param settings settings
+	 * @param seed     the seed for this node
+	 */
+	public RasterChildrenMapComputation(Settings settings, long seed) {
+		this.settings = settings;
+		random = new SplittableRandom(seed);
+	}
+
+	@Override
+	public void setParallelism(Executor executor, IntSupplier parallelism) {
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	@Override
+	public <T> OpenList run(T node, Function<T, Collection<T>> childrenFunction, Function<T, Double> areaFunction, PolygonSimple polygon) {
+		if (childrenFunction.apply(node) == null)
+			return null;
+		var children = new ArrayList<>(childrenFunction.apply(node));
+		var n = children.size();
+		if (n == 0)
+			return null;
+		var percentages = ChildrenMapComputation.computePercentages(children, areaFunction);
+		var region = ClipRegion.create(new PolygonSimple(polygon));
+
+		var sites = new OpenList(n);
+		if (n == 1) {
+			var center = polygon.getCentroid();
+			var site = new Site(center.getX(), center.getY(), 0, 1.0);
+			site.setPolygon(new PolygonSimple(polygon));
+			site.setData(children.get(0));
+			sites.add(site);
+		} else {
+			var raster = new Raster(region, n, executor, parallelism);
+			var x = new double[n];
+			var y = new double[n];
+			var weight = new double[n];
+			var target = new double[n];
+			var points = polygon.getRandomInnerPoints(random, n);
+			for (var i = 0; i < n; i++) {
+				x[i] = raster.toPixelX(points[i].getX());
+				y[i] = raster.toPixelY(points[i].getY());
+				target[i] = percentages[i] * raster.numberInside;
+			}
+			raster.optimize(x, y, weight, target, settings);
+
+			var cellArea = raster.cell * raster.cell;
+			for (var i = 0; i < n; i++) {
+				x[i] = raster.toWorldX(x[i]);
+				y[i] = raster.toWorldY(y[i]);
+				weight[i] *= cellArea;
+			}
+			var cells = computeCells(x, y, weight, region, polygon);
+			for (var i = 0; i < n; i++) {
+				var site = new Site(x[i], y[i], weight[i], percentages[i]);
+				site.setData(children.get(i));
+				site.setPolygon(cells[i]);
+				sites.add(site);
+			}
+		}
+
+		if (settings.getPolygonScaleFactor() > 0 && settings.getPolygonScaleFactor() != 1.0) {
+			for (var i = 0; i < sites.size; i++) {
+				sites.array[i].getPolygon().shrinkForBorder(settings.getPolygonScaleFactor());
+			}
+		}
+		return sites;
+	}
+
+	/**
+	 * computes the power diagram of the sites, clipped by the region. A site whose cell is empty is dominated by the
+	 * sites whose weight, a squared radius, reaches it. As in {@link kn.uni.voronoitreemap.core.VoronoiCore}, the
+	 * weight of each of these sites is lowered to just below the squared distance, so that the site lies in its own
+	 * cell, and the diagram is computed again, until no cell is empty. Sites that lie outside of the polygon, or on
+	 * top of another site, are first moved to random points inside the polygon
+	 */
+	private PolygonSimple[] computeCells(double[] x, double[] y, double[] weight, ClipRegion region, PolygonSimple polygon) {
+		var n = x.length;
+		var positions = new HashSet<Map.Entry<Double, Double>>();
+		for (var i = 0; i < n; i++) {
+			if (!region.contains(x[i], y[i]) || !positions.add(Map.entry(x[i], y[i]))) {
+				var point = polygon.getRandomInnerPoints(random, 1)[0];
+				x[i] = point.getX();
+				y[i] = point.getY();
+			}
+		}
+
+		var diagram = new PowerDiagram();
+		diagram.setClipRegion(region);
+		diagram.setRandom(random.split());
+		var cells = new PolygonSimple[n];
+		for (var round = 0; round <= n; round++) {
+			var sites = new OpenList(n);
+			for (var i = 0; i < n; i++)
+				sites.add(new Site(x[i], y[i], weight[i]));
+			var ordered = Arrays.copyOf(sites.array, n);
+			diagram.setSites(sites);
+			diagram.computeDiagram();
+
+			var empty = new ArrayList<Integer>();
+			for (var i = 0; i < n; i++) {
+				cells[i] = ordered[i].getPolygon();
+				if (cells[i] == null)
+					empty.add(i);
+			}
+			if (empty.isEmpty() || round == n)
+				break;
+			for (var i : empty) {
+				for (var j = 0; j < n; j++) {
+					if (j != i) {
+						var dx = x[i] - x[j];
+						var dy = y[i] - y[j];
+						weight[j] = Math.min(weight[j], NEARLY_ONE * NEARLY_ONE * (dx * dx + dy * dy));
+					}
+				}
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * the rasterized clip polygon and the assignment of pixels to sites. Pixel (px,py) has its center at
+	 * (px+0.5,py+0.5) in pixel coordinates
+	 */
+	private static class Raster {
+		final double minX;
+		final double minY;
+		final double cell;
+		final int width;
+		final int height;
+		final boolean[] inside;
+		final int numberInside;
+		final Executor executor;
+		final IntSupplier parallelism;
+		int[] owner;
+		int[] next;
+
+		Raster(ClipRegion region, int numberOfSites, Executor executor, IntSupplier parallelism) {
+			this.executor = executor;
+			this.parallelism = parallelism;
+			var bounds = region.getBounds();
+			var pixels = Math.min(MAX_PIXELS, Math.max(MIN_PIXELS, (long) PIXELS_PER_CHILD * numberOfSites));
+			cell = Math.sqrt(bounds.getWidth() * bounds.getHeight() / pixels);
+			minX = bounds.getMinX();
+			minY = bounds.getMinY();
+			width = Math.max(1, (int) Math.ceil(bounds.getWidth() / cell));
+			height = Math.max(1, (int) Math.ceil(bounds.getHeight() / cell));
+			inside = new boolean[width * height];
+			numberInside = scanConvert(region.getPolygon());
+			owner = new int[width * height];
+			next = new int[width * height];
+		}
+
+		double toPixelX(double x) {
+			return (x - minX) / cell;
+		}
+
+		double toPixelY(double y) {
+			return (y - minY) / cell;
+		}
+
+		double toWorldX(double px) {
+			return minX + px * cell;
+		}
+
+		double toWorldY(double py) {
+			return minY + py * cell;
+		}
+
+		/**
+		 * marks the pixels whose centers lie inside the polygon, using the even-odd rule along each row
+		 *
+		 * @return number of pixels inside
+		 */
+		private int scanConvert(PolygonSimple polygon) {
+			var n = polygon.getNumPoints();
+			var px = new double[n];
+			var py = new double[n];
+			for (var i = 0; i < n; i++) {
+				px[i] = toPixelX(polygon.getXPoints()[i]);
+				py[i] = toPixelY(polygon.getYPoints()[i]);
+			}
+			var count = 0;
+			var crossings = new double[n];
+			for (var row = 0; row < height; row++) {
+				var yc = row + 0.5;
+				var m = 0;
+				for (var part = 0; part < polygon.getNumParts(); part++) {
+					var end = polygon.getPartEnd(part);
+					for (int i = polygon.getPartStart(part), j = end - 1; i < end; j = i++) {
+						if ((py[i] > yc) != (py[j] > yc))
+							crossings[m++] = px[j] + (yc - py[j]) / (py[i] - py[j]) * (px[i] - px[j]);
+					}
+				}
+				Arrays.sort(crossings, 0, m);
+				for (var k = 0; k + 1 < m; k += 2) {
+					var from = Math.max(0, (int) Math.ceil(crossings[k] - 0.5));
+					var to = Math.min(width - 1, (int) Math.floor(crossings[k + 1] - 0.5));
+					for (var col = from; col <= to; col++) {
+						inside[row * width + col] = true;
+						count++;
+					}
+				}
+			}
+			return Math.max(1, count);
+		}
+
+		/**
+		 * Lloyd iteration with weight adaption on the raster
+		 */
+		void optimize(double[] x, double[] y, double[] weight, double[] target, Settings settings) {
+			var n = x.length;
+			var count = new int[n];
+			var sumX = new double[n];
+			var sumY = new double[n];
+			Arrays.fill(owner, -1);
+			var iterations = Math.min(MAX_ITERATIONS, settings.maxIterat);
+			for (var iteration = 0; iteration < iterations; iteration++) {
+				assign(x, y, weight, iteration == 0);
+
+				Arrays.fill(count, 0);
+				Arrays.fill(sumX, 0);
+				Arrays.fill(sumY, 0);
+				for (var row = 0; row < height; row++) {
+					for (var col = 0; col < width; col++) {
+						var p = row * width + col;
+						if (inside[p] && owner[p] != -1) {
+							var s = owner[p];
+							count[s]++;
+							sumX[s] += col + 0.5;
+							sumY[s] += row + 0.5;
+						}
+					}
+				}
+				var error = 0.0;
+				for (var i = 0; i < n; i++)
+					error += Math.abs(count[i] - target[i]);
+				if (error / (2.0 * numberInside) < settings.errorThreshold && iteration > 0)
+					break;
+
+				var minWeight = Double.MAX_VALUE;
+				for (var i = 0; i < n; i++) {
+					if (count[i] > 0) {
+						x[i] = sumX[i] / count[i];
+						y[i] = sumY[i] / count[i];
+					}
+					// weights are squared distances, so the difference of areas divided by pi is the difference of
+					// the squared radii of circles of these areas
+					weight[i] += (target[i] - count[i]) / Math.PI;
+					minWeight = Math.min(minWeight, weight[i]);
+				}
+				for (var i = 0; i < n; i++)
+					weight[i] -= minWeight;
+			}
+			assign(x, y, weight, false);
+		}
+
+		/**
+		 * assigns each pixel to the site of smallest power distance, by jump flooding
+		 *
+		 * @param full if false, starts from the previous assignment and only uses a few short steps
+		 */
+		void assign(double[] x, double[] y, double[] weight, boolean full) {
+			for (var i = 0; i < x.length; i++) {
+				var col = Math.min(width - 1, Math.max(0, (int) x[i]));
+				var row = Math.min(height - 1, Math.max(0, (int) y[i]));
+				var p = row * width + col;
+				if (owner[p] == -1 || powerDistance(col, row, i, x, y, weight) < powerDistance(col, row, owner[p], x, y, weight))
+					owner[p] = i;
+			}
+			var steps = new ArrayList<Integer>();
+			for (var step = (full ? Integer.highestOneBit(Math.max(width, height)) : 4); step >= 1; step /= 2)
+				steps.add(step);
+			steps.add(1);
+			var tasks = (executor == null || width * height < PARALLEL_PIXELS ? 1 : Math.min(parallelism.getAsInt(), height / MIN_ROWS_PER_TASK));
+			for (var step : steps) {
+				forEachRow(tasks, row -> {
+					for (var col = 0; col < width; col++) {
+						var best = owner[row * width + col];
+						var bestDistance = (best == -1 ? Double.MAX_VALUE : powerDistance(col, row, best, x, y, weight));
+						for (var dy = -step; dy <= step; dy += step) {
+							var r = row + dy;
+							if (r < 0 || r >= height)
+								continue;
+							for (var dx = -step; dx <= step; dx += step) {
+								var c = col + dx;
+								if (c < 0 || c >= width || (dx == 0 && dy == 0))
+									continue;
+								var s = owner[r * width + c];
+								if (s != -1 && s != best) {
+									var distance = powerDistance(col, row, s, x, y, weight);
+									if (distance < bestDistance) {
+										best = s;
+										bestDistance = distance;
+									}
+								}
+							}
+						}
+						next[row * width + col] = best;
+					}
+				});
+				var tmp = owner;
+				owner = next;
+				next = tmp;
+			}
+		}
+
+		/**
+		 * runs the row task for all rows, in the given number of chunks of consecutive rows. The calling thread and
+		 * the helpers take chunks until none are left
+		 */
+		private void forEachRow(int tasks, IntConsumer rowTask) {
+			if (tasks <= 1) {
+				for (var row = 0; row < height; row++)
+					rowTask.accept(row);
+				return;
+			}
+			var chunkSize = (height + tasks - 1) / tasks;
+			var nextChunk = new AtomicInteger();
+			var chunksDone = new CountDownLatch(tasks);
+			var failure = new AtomicReference<RuntimeException>();
+
+			Runnable worker = () -> {
+				int chunk;
+				while ((chunk = nextChunk.getAndIncrement()) < tasks) {
+					try {
+						for (var row = chunk * chunkSize; row < Math.min(height, (chunk + 1) * chunkSize); row++)
+							rowTask.accept(row);
+					} catch (RuntimeException e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						chunksDone.countDown();
+					}
+				}
+			};
+			try {
+				for (var t = 1; t < tasks; t++)
+					executor.execute(worker);
+			} catch (RejectedExecutionException ignored) {
+				// the calling thread does the remaining chunks
+			}
+			worker.run();
+			try {
+				chunksDone.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			if (failure.get() != null)
+				throw failure.get();
+		}
+
+		private static double powerDistance(int col, int row, int i, double[] x, double[] y, double[] weight) {
+			var dx = col + 0.5 - x[i];
+			var dy = row + 0.5 - y[i];
+			return dx * dx + dy * dy - weight[i];
+		}
+	}
+}
@@ -20,6 +20,7 @@
 package org.husonlab.voronoitreemapservice;
 
 import kn.uni.voronoitreemap.core.VoroSettings;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
 
 /**
  * algorithm settings
@@ -27,14 +28,63 @@ import kn.uni.voronoitreemap.core.VoroSettings;
  * Daniel Huson, 5.2023
  */
 public class Settings extends VoroSettings {
+	/**
+	 * the engine used to compute the map of the children of a node: the exact power diagram iteration, or a fast
+	 * approximation on a raster, for previews
+	 */
+	public enum Engine {Exact, Raster}
+
 	private double polygonScaleFactor = 1.0;
 	private long seed = 666;
 	private int numberOfThreads = 4;
+	private LayoutCache layoutCache;
+	private Engine engine = Engine.Exact;
+	private QualityProfile qualityProfile;
+	private int maxFanOut = 0;
+	private VirtualGrouping.Grouping grouping = VirtualGrouping.Grouping.ByWeight;
+	private boolean adaptiveParallelism = true;
+	private int multiStarts = 1;
+	private int multiStartLevels = 2;
+	private int multiStartMinChildren = 20;
+	private Viewport viewport;
+	private int maxPendingJobs = 65536;
+	private boolean leanResults = false;
 
 	public Settings() {
 		super();
 	}
 
+	/**
+	 * copy constructor
+	 *
+	 * @param that the settings to copy
+	 */
+	public Settings(Settings that) {
+		super();
+		cancelAreaError = that.cancelAreaError;
+		errorThreshold = that.errorThreshold;
+		cancelMaxIterat = that.cancelMaxIterat;
+		maxIterat = that.maxIterat;
+		cancelOnLocalError = that.cancelOnLocalError;
+		boostConvergence = that.boostConvergence;
+		analyticSmallLayouts = that.analyticSmallLayouts;
+		polygonScaleFactor = that.polygonScaleFactor;
+		seed = that.seed;
+		numberOfThreads = that.numberOfThreads;
+		layoutCache = that.layoutCache;
+		engine = that.engine;
+		qualityProfile = that.qualityProfile;
+		maxFanOut = that.maxFanOut;
+		grouping = that.grouping;
+		adaptiveParallelism = that.adaptiveParallelism;
+		multiStarts = that.multiStarts;
+		multiStartLevels = that.multiStartLevels;
+		multiStartMinChildren = that.multiStartMinChildren;
+		viewport = that.viewport;
+		maxPendingJobs = that.maxPendingJobs;
+		leanResults = that.leanResults;
+	}
+
 	/**
 	 * constructor
 	 *
@@ -94,4 +144,168 @@ public class Settings extends VoroSettings {
 	public void setNumberOfThreads(int numberOfThreads) {
 		this.numberOfThreads = numberOfThreads;
 	}
+
+	public Engine getEngine() {
+		return engine;
+	}
+
+	public void setEngine(Engine engine) {
+		this.engine = engine;
+	}
+
+	public QualityProfile getQualityProfile() {
+		return qualityProfile;
+	}
+
+	/**
+	 * sets an optional profile that adjusts the error threshold and maximum number of iterations per node, such as
+	 * {@link QualityProfile#adaptive()}, or null
+	 */
+	public void setQualityProfile(QualityProfile qualityProfile) {
+		this.qualityProfile = qualityProfile;
+	}
+
+	/**
+	 * gets the settings for laying out the children of a node
+	 *
+	 * @param level        the level of the node, 0 for the root
+	 * @param relativeArea the area of the polygon of the node divided by the area of the root polygon
+	 * @return these settings, if there is no quality profile and multiple starts apply to the level, otherwise a copy
+	 * adjusted by the profile, and with a single start below the multi-start levels
+	 */
+	public Settings getNodeSettings(int level, double relativeArea) {
+		var singleStart = (multiStarts > 1 && level >= multiStartLevels);
+		if (qualityProfile == null && !singleStart)
+			return this;
+		var settings = new Settings(this);
+		if (qualityProfile != null)
+			qualityProfile.apply(settings, level, relativeArea);
+		if (singleStart)
+			settings.multiStarts = 1;
+		return settings;
+	}
+
+	public int getMaxFanOut() {
+		return maxFanOut;
+	}
+
+	/**
+	 * sets the maximum number of children laid out together, nodes with more children are split into virtual
+	 * groups, see {@link VirtualGrouping}. Use 0 to lay out all children of a node together
+	 */
+	public void setMaxFanOut(int maxFanOut) {
+		if (maxFanOut == 1 || maxFanOut < 0)
+			throw new IllegalArgumentException("maxFanOut must be 0 or at least 2");
+		this.maxFanOut = maxFanOut;
+	}
+
+	public VirtualGrouping.Grouping getGrouping() {
+		return grouping;
+	}
+
+	/**
+	 * sets how children are assigned to virtual groups
+	 */
+	public void setGrouping(VirtualGrouping.Grouping grouping) {
+		this.grouping = grouping;
+	}
+
+	public boolean isAdaptiveParallelism() {
+		return adaptiveParallelism;
+	}
+
+	/**
+	 * determines whether node jobs may use helper threads while there are fewer pending jobs than threads,
+	 * see {@link ParallelismController}. This does not change the result
+	 */
+	public void setAdaptiveParallelism(boolean adaptiveParallelism) {
+		this.adaptiveParallelism = adaptiveParallelism;
+	}
+
+	public int getMultiStarts() {
+		return multiStarts;
+	}
+
+	/**
+	 * sets the number of differently seeded layouts that are computed in parallel for a node, keeping the one with
+	 * the smallest area error. This only applies to nodes in the top levels with enough children. Each layout runs
+	 * to the end, so the chosen one does not depend on timing or on the number of threads. Use 1 for a single layout
+	 * per node
+	 */
+	public void setMultiStarts(int multiStarts) {
+		this.multiStarts = Math.max(1, multiStarts);
+	}
+
+	public int getMultiStartLevels() {
+		return multiStartLevels;
+	}
+
+	/**
+	 * sets the number of levels, starting at the root, for which multiple starts are used
+	 */
+	public void setMultiStartLevels(int multiStartLevels) {
+		this.multiStartLevels = multiStartLevels;
+	}
+
+	public int getMultiStartMinChildren() {
+		return multiStartMinChildren;
+	}
+
+	/**
+	 * sets the number of children that a node needs for multiple starts to be used
+	 */
+	public void setMultiStartMinChildren(int multiStartMinChildren) {
+		this.multiStartMinChildren = multiStartMinChildren;
+	}
+
+	public Viewport getViewport() {
+		return viewport;
+	}
+
+	/**
+	 * sets an optional viewport, by which pending node jobs are ordered, or null. Jobs that are not visible wait
+	 * until no other job is ready or running, so they are computed last
+	 */
+	public void setViewport(Viewport viewport) {
+		this.viewport = viewport;
+	}
+
+	public int getMaxPendingJobs() {
+		return maxPendingJobs;
+	}
+
+	/**
+	 * sets the maximum number of node jobs that are ready to be run. When it is reached, the thread that computed a
+	 * node runs the jobs of its children itself, depth-first, which bounds the memory used for pending jobs regardless
+	 * of the shape of the tree. A thread that has nested many such jobs waits for the ready jobs to drop below the
+	 * bound instead. Only the last thread that is not waiting may exceed it, by the children of the nodes that it is
+	 * working on. Jobs paused for the viewport are bounded separately by the same number. Use 0 for no bound
+	 */
+	public void setMaxPendingJobs(int maxPendingJobs) {
+		this.maxPendingJobs = Math.max(0, maxPendingJobs);
+	}
+
+	public boolean isLeanResults() {
+		return leanResults;
+	}
+
+	/**
+	 * if set, each computed polygon is replaced by a compact copy before it is reported, without the polygon before
+	 * shrinking for the border (see {@link PolygonSimple#getOriginalPolygon()}) and other cached data, so that only
+	 * the final coordinates are retained by the result consumer and by the jobs of the children
+	 */
+	public void setLeanResults(boolean leanResults) {
+		this.leanResults = leanResults;
+	}
+
+	public LayoutCache getLayoutCache() {
+		return layoutCache;
+	}
+
+	/**
+	 * sets an optional cache of node layouts, such as a {@link DiskLayoutCache}, or null
+	 */
+	public void setLayoutCache(LayoutCache layoutCache) {
+		this.layoutCache = layoutCache;
+	}
 }
@@ -0,0 +1,90 @@
+/*
+ * Viewport.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import kn.uni.voronoitreemap.convexClip.ConvexClipper;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Rectangle2D;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * the part of the tree map that is currently shown, in the coordinates of the root polygon. It can be changed at
+ * any time, also while a computation is running. Pending node jobs are then ordered by how much of their polygon
+ * is visible, and jobs whose polygon is not visible at all wait until there is no other work.
+ */
+public class Viewport {
+	private volatile Rectangle2D rectangle;
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+	public Rectangle2D get() {
+		return rectangle;
+	}
+
+	/**
+	 * sets the visible rectangle
+	 *
+	 * @param rectangle the rectangle, or null, if everything is to be computed
+	 */
+	public void set(Rectangle2D rectangle) {
+		this.rectangle = rectangle;
+		for (var listener : listeners)
+			listener.run();
+	}
+
+	void addListener(Runnable listener) {
+		listeners.add(listener);
+	}
+
+	void removeListener(Runnable listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * computes the visible area of a polygon
+	 *
+	 * @param rectangle the viewport rectangle
+	 * @param polygon   the polygon
+	 * @param clipper   scratch buffers
+	 * @return the area of the part of the polygon that lies in the rectangle
+	 */
+	static double visibleArea(Rectangle2D rectangle, PolygonSimple polygon, ConvexClipper clipper) {
+		var bounds = polygon.getBounds();
+		if (!rectangle.intersects(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight()))
+			return 0;
+		if (rectangle.contains(bounds.getMinX(), bounds.getMinY(), bounds.getWidth(), bounds.getHeight()))
+			return polygon.getArea();
+		// keep x>=minX, x<=maxX, y>=minY, y<=maxY
+		var a = new double[]{1, -1, 0, 0};
+		var b = new double[]{0, 0, 1, -1};
+		var c = new double[]{-rectangle.getMinX(), rectangle.getMaxX(), -rectangle.getMinY(), rectangle.getMaxY()};
+		var area = 0.0;
+		for (var part = 0; part < polygon.getNumParts(); part++) {
+			var points = (polygon.getNumParts() == 1 ? polygon : polygon.getPart(part));
+			var length = clipper.clip(a, b, c, 4, points.getXPoints(), points.getYPoints(), points.getNumPoints());
+			var x = clipper.getX();
+			var y = clipper.getY();
+			for (int i = 0, j = length - 1; i < length; j = i++)
+				area += x[j] * y[i] - x[i] * y[j];
+		}
+		return 0.5 * Math.abs(area);
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * VirtualGrouping.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * splits the children of nodes with a large fan-out into virtual groups, so that no node has more than a given
+ * number of children. The computation runs on a tree of {@link Node}s, in which a virtual group is a node that
+ * has no tree node, and the virtual levels are removed again when results are reported.
+ * <p>
+ * Groups are balanced by weight: either the children are sorted by decreasing weight and each is assigned to the
+ * lightest group that still has room, or the children are kept in the order given by the children function,
+ * for example sorted by some key, and cut into consecutive groups of about equal weight. Groups that still have
+ * too many children are split again.
+ */
+public class VirtualGrouping {
+	/**
+	 * how children are assigned to groups
+	 */
+	public enum Grouping {ByWeight, ByOrder}
+
+	/**
+	 * a node of the grouped tree, either a tree node or a virtual group
+	 */
+	public static final class Node<T> {
+		private final T node;
+		private final int depth;
+		private final List<Node<T>> children = new ArrayList<>();
+
+		private Node(T node, int depth) {
+			this.node = node;
+			this.depth = depth;
+		}
+
+		/**
+		 * @return the tree node, or null, if this is a virtual group
+		 */
+		public T getNode() {
+			return node;
+		}
+
+		public boolean isVirtual() {
+			return node == null;
+		}
+
+		/**
+		 * @return the depth of the tree node, or the depth of the tree node that a virtual group belongs to
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		public List<Node<T>> getChildren() {
+			return children;
+		}
+	}
+
+	/**
+	 * builds the grouped tree
+	 *
+	 * @param rootNode         the root node
+	 * @param childrenFunction gets children of a node
+	 * @param areaMap          total weight of the subtree below each node
+	 * @param maxFanOut        the maximum number of children of a node, at least 2
+	 * @param grouping         how children are assigned to groups
+	 * @return root of the grouped tree
+	 */
+	public static <T> Node<T> apply(T rootNode, Function<T, Collection<T>> childrenFunction, Map<T, Double> areaMap, int maxFanOut, Grouping grouping) {
+		if (maxFanOut < 2)
+			throw new IllegalArgumentException("maxFanOut must be at least 2");
+		var areaFunction = area(areaMap);
+		var root = new Node<>(rootNode, 0);
+		var stack = new ArrayList<Node<T>>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			var v = stack.remove(stack.size() - 1);
+			var children = childrenFunction.apply(v.node);
+			if (children == null)
+				continue;
+			var list = new ArrayList<Node<T>>(children.size());
+			for (var child : children) {
+				var w = new Node<>(child, v.depth + 1);
+				list.add(w);
+				stack.add(w);
+			}
+			addGrouped(v, list, areaFunction, maxFanOut, grouping);
+		}
+		return root;
+	}
+
+	/**
+	 * adds the given nodes as children of the parent, inserting virtual groups as needed
+	 */
+	private static <T> void addGrouped(Node<T> parent, List<Node<T>> nodes, Function<Node<T>, Double> areaFunction, int maxFanOut, Grouping grouping) {
+		if (nodes.size() <= maxFanOut) {
+			parent.children.addAll(nodes);
+			return;
+		}
+		var numberOfGroups = Math.min(maxFanOut, (nodes.size() + maxFanOut - 1) / maxFanOut);
+		var groups = (grouping == Grouping.ByWeight ? groupByWeight(nodes, areaFunction, numberOfGroups) : groupByOrder(nodes, areaFunction, numberOfGroups));
+		for (var members : groups) {
+			if (members.size() == 1)
+				parent.children.add(members.get(0));
+			else {
+				var group = new Node<T>(null, parent.depth);
+				addGrouped(group, members, areaFunction, maxFanOut, grouping);
+				parent.children.add(group);
+			}
+		}
+	}
+
+	/**
+	 * assigns the nodes, heaviest first, to the lightest group that has room, groups have equal capacity
+	 */
+	private static <T> List<List<Node<T>>> groupByWeight(List<Node<T>> nodes, Function<Node<T>, Double> areaFunction, int numberOfGroups) {
+		var capacity = (nodes.size() + numberOfGroups - 1) / numberOfGroups;
+		var sorted = new ArrayList<>(nodes);
+		sorted.sort(Comparator.comparingDouble((Node<T> v) -> areaFunction.apply(v)).reversed());
+		var groups = new ArrayList<List<Node<T>>>();
+		var weights = new double[numberOfGroups];
+		for (var i = 0; i < numberOfGroups; i++)
+			groups.add(new ArrayList<>());
+		for (var v : sorted) {
+			var best = -1;
+			for (var i = 0; i < numberOfGroups; i++) {
+				if (groups.get(i).size() < capacity && (best == -1 || weights[i] < weights[best]))
+					best = i;
+			}
+			groups.get(best).add(v);
+			weights[best] += areaFunction.apply(v);
+		}
+		return groups;
+	}
+
+	/**
+	 * cuts the nodes into consecutive groups of about equal total weight, each group gets at least one node
+	 */
+	private static <T> List<List<Node<T>>> groupByOrder(List<Node<T>> nodes, Function<Node<T>, Double> areaFunction, int numberOfGroups) {
+		var total = 0.0;
+		for (var v : nodes)
+			total += areaFunction.apply(v);
+		var groups = new ArrayList<List<Node<T>>>();
+		var group = new ArrayList<Node<T>>();
+		var sum = 0.0;
+		for (var i = 0; i < nodes.size(); i++) {
+			var v = nodes.get(i);
+			group.add(v);
+			sum += areaFunction.apply(v);
+			var remainingNodes = nodes.size() - i - 1;
+			var remainingGroups = numberOfGroups - groups.size() - 1;
+			if (remainingGroups > 0 && (remainingNodes == remainingGroups || (total > 0 && sum >= total * (groups.size() + 1) / numberOfGroups))) {
+				groups.add(group);
+				group = new ArrayList<>();
+			}
+		}
+		groups.add(group);
+		return groups;
+	}
+
+	/**
+	 * the total weight of the subtree below a node of the grouped tree
+	 */
+	private static <T> Function<Node<T>, Double> area(Map<T, Double> areaMap) {
+		return new Function<>() {
+			@Override
+			public Double apply(Node<T> v) {
+				if (v.isVirtual()) {
+					var sum = 0.0;
+					for (var w : v.children)
+						sum += apply(w);
+					return sum;
+				} else
+					return areaMap.getOrDefault(v.node, 0.0);
+			}
+		};
+	}
+}
@@ -22,14 +22,15 @@ package org.husonlab.voronoitreemapservice;
 
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 /**
  * computes the Voronoi map
@@ -51,41 +52,176 @@ public class VoronoiTreeMapComputation {
 	 * @return number of nodes processed
 	 */
 	public static <T> int run(Settings settings, T rootNode, Function<T, Collection<T>> childrenFunction, Function<T, Double> weightFunction, PolygonSimple rootPolygon, BiConsumer<T, PolygonSimple> resultConsumer) {
-		var executorService = Executors.newFixedThreadPool(settings.getNumberOfThreads());
+		return run(settings, rootNode, childrenFunction, weightFunction, rootPolygon, false, (node, parent, level, polygon) -> {
+			resultConsumer.accept(node, polygon);
+			return -1;
+		});
+	}
+
+	/**
+	 * run the Voronoi tree map computation breadth-first, delivering the polygons level by level. Level k consists
+	 * of the nodes k+1 steps below the root, the level that {@link PolygonSimple#getLevel()} reports. The polygons of
+	 * a level are delivered, followed by the level complete event, as soon as all of them are computed, while work
+	 * on the next level continues wherever the parents are done
+	 *
+	 * @param settings              algorithm settings
+	 * @param rootNode              the root node
+	 * @param childrenFunction      gets children of a node
+	 * @param weightFunction        gets the weight of a node, leaves should have non-zero weight
+	 * @param rootPolygon           the root polygon to draw the map into
+	 * @param resultConsumer        is called for each polygon, all polygons of a level before any of the next level
+	 * @param levelCompleteConsumer is called with k, once all polygons of level k have been delivered
+	 * @param <T>                   the node type
+	 * @return number of nodes processed
+	 */
+	public static <T> int run(Settings settings, T rootNode, Function<T, Collection<T>> childrenFunction, Function<T, Double> weightFunction, PolygonSimple rootPolygon, BiConsumer<T, PolygonSimple> resultConsumer, IntConsumer levelCompleteConsumer) {
+		var levels = new LevelBuffer<T>(countLevels(rootNode, childrenFunction), resultConsumer, levelCompleteConsumer);
+		return run(settings, rootNode, childrenFunction, weightFunction, rootPolygon, true, levels);
+	}
+
+	/**
+	 * run the Voronoi tree map computation, writing all polygons to a columnar store. The polygon objects are not
+	 * retained, and the computation uses lean results, see {@link Settings#setLeanResults(boolean)}, so this uses
+	 * much less memory for very large trees
+	 *
+	 * @param settings         algorithm settings
+	 * @param rootNode         the root node
+	 * @param childrenFunction gets children of a node
+	 * @param weightFunction   gets the weight of a node, leaves should have non-zero weight
+	 * @param rootPolygon      the root polygon to draw the map into
+	 * @param store            the store to which the polygons are added
+	 * @param <T>              the node type
+	 * @return number of nodes processed
+	 */
+	public static <T> int run(Settings settings, T rootNode, Function<T, Collection<T>> childrenFunction, Function<T, Double> weightFunction, PolygonSimple rootPolygon, PolygonStore<T> store) {
+		if (!settings.isLeanResults()) {
+			settings = new Settings(settings);
+			settings.setLeanResults(true);
+		}
+		var result = run(settings, rootNode, childrenFunction, weightFunction, rootPolygon, false, store::add);
+		store.trimToSize();
+		return result;
+	}
+
+	/**
+	 * receives the polygon computed for a node
+	 */
+	private interface ResultSink<T> {
+		/**
+		 * @return the index of the node, which is passed on as parent index to its children
+		 */
+		int accept(T node, int parent, int level, PolygonSimple polygon);
+	}
+
+	/**
+	 * holds back the polygons of a level until all polygons of the level and of all lower levels have been computed
+	 */
+	private static class LevelBuffer<T> implements ResultSink<T> {
+		private final int[] remaining;
+		private final List<List<Map.Entry<T, PolygonSimple>>> buffers = new ArrayList<>();
+		private final BiConsumer<T, PolygonSimple> resultConsumer;
+		private final IntConsumer levelCompleteConsumer;
+		private int nextLevel = 0;
+
+		LevelBuffer(int[] levelSizes, BiConsumer<T, PolygonSimple> resultConsumer, IntConsumer levelCompleteConsumer) {
+			this.remaining = levelSizes;
+			this.resultConsumer = resultConsumer;
+			this.levelCompleteConsumer = levelCompleteConsumer;
+			for (var level = 0; level < levelSizes.length; level++)
+				buffers.add(new ArrayList<>());
+		}
+
+		@Override
+		public synchronized int accept(T node, int parent, int level, PolygonSimple polygon) {
+			if (level == nextLevel)
+				resultConsumer.accept(node, polygon);
+			else
+				buffers.get(level).add(Map.entry(node, polygon));
+			remaining[level]--;
+			while (nextLevel < remaining.length && remaining[nextLevel] == 0) {
+				levelCompleteConsumer.accept(nextLevel);
+				buffers.set(nextLevel, null);
+				if (++nextLevel < remaining.length) {
+					for (var entry : buffers.get(nextLevel))
+						resultConsumer.accept(entry.getKey(), entry.getValue());
+					buffers.get(nextLevel).clear();
+				}
+			}
+			return -1;
+		}
+	}
+
+	private static <T> int run(Settings settings, T rootNode, Function<T, Collection<T>> childrenFunction, Function<T, Double> weightFunction, PolygonSimple rootPolygon, boolean breadthFirst, ResultSink<T> resultSink) {
+		if (settings.getMaxFanOut() > 0) {
+			// lay out the tree with virtual groups and report only the tree nodes, with their parents and levels in the tree
+			var root = VirtualGrouping.apply(rootNode, childrenFunction, computeDesiredAreaMap(rootNode, childrenFunction, weightFunction), settings.getMaxFanOut(), settings.getGrouping());
+			runTasks(settings, root, VirtualGrouping.Node::getChildren, v -> (v.isVirtual() ? 0.0 : weightFunction.apply(v.getNode())), rootPolygon, (v, parent, level, polygon) -> {
+				if (v.isVirtual())
+					return parent;
+				polygon.setLevel(v.getDepth() - 1);
+				return resultSink.accept(v.getNode(), parent, v.getDepth() - 1, polygon);
+			}, breadthFirst);
+			return count(rootNode, childrenFunction);
+		} else
+			return runTasks(settings, rootNode, childrenFunction, weightFunction, rootPolygon, resultSink, breadthFirst);
+	}
+
+	private static <T> int runTasks(Settings settings, T rootNode, Function<T, Collection<T>> childrenFunction, Function<T, Double> weightFunction, PolygonSimple rootPolygon, ResultSink<T> resultSink, boolean breadthFirst) {
+		var scheduler = new NodeJobScheduler(settings, breadthFirst);
 		var totalJobs = count(rootNode, childrenFunction);
 		var countdownLatch = new CountDownLatch(totalJobs);
 
 		var areaMap = computeDesiredAreaMap(rootNode, childrenFunction, weightFunction);
 
-		executorService.submit(createRunnable(settings, executorService, rootNode, childrenFunction, areaMap::get, rootPolygon, 0, countdownLatch, resultConsumer));
+		scheduler.submit(0, rootPolygon, createRunnable(settings, scheduler, rootNode, childrenFunction, areaMap::get, rootPolygon, rootPolygon.getArea(), -1, 0, settings.getSeed(), countdownLatch, resultSink));
 
 		try {
 			countdownLatch.await();
 		} catch (InterruptedException ignored) {
 		}
-		executorService.shutdownNow();
+		scheduler.shutdown();
 		return totalJobs;
 	}
 
 	/**
-	 * creates the runnable task
+	 * creates the runnable task. Each node has its own seed, derived from the seed of its parent, so that the
+	 * result does not depend on the number of threads. The area of the root polygon is used by a quality profile
 	 */
-	private static <T> Runnable createRunnable(Settings settings, ExecutorService executorService, T node, Function<T, Collection<T>> childrenFunction, Function<T, Double> areaFunction, PolygonSimple polygonSimple, int level, CountDownLatch countDown, BiConsumer<T, PolygonSimple> consumeResult) {
+	private static <T> Runnable createRunnable(Settings settings, NodeJobScheduler scheduler, T node, Function<T, Collection<T>> childrenFunction, Function<T, Double> areaFunction, PolygonSimple polygonSimple, double rootArea, int index, int level, long seed, CountDownLatch countDown, ResultSink<T> consumeResult) {
 		return () -> {
 			try {
 				// run
-				var compute = new ChildrenMapComputation(settings);
+				var compute = ChildrenMapEngine.create(settings.getNodeSettings(level, polygonSimple.getArea() / rootArea), seed);
+				scheduler.configure(compute);
 				var childSites = compute.run(node, childrenFunction, areaFunction, polygonSimple);
 				if (childSites != null) {
-					for (var site : childSites) {
+					// keep only the children and their polygons, so that the sites, and the diagram that they refer to,
+					// can be collected before the jobs of the children run
+					var numberOfChildren = childSites.size;
+					var children = new Object[numberOfChildren];
+					var polygons = new PolygonSimple[numberOfChildren];
+					for (var i = 0; i < numberOfChildren; i++) {
+						var site = childSites.array[i];
 						if (site != null) {
-							var child = (T) site.getData();
+							children[i] = site.getData();
+							polygons[i] = (settings.isLeanResults() ? new PolygonSimple(site.getPolygon()) : site.getPolygon());
+						}
+					}
+					childSites = null;
+
+					for (var position = 0; position < numberOfChildren; position++) {
+						var childSeed = ChildrenMapComputation.childSeed(seed, position);
+						var polygon = polygons[position];
+						if (polygon != null) {
+							var child = (T) children[position];
+							int childIndex;
 							synchronized (consumeResult) {
-								var polygon = site.getPolygon();
 								polygon.setLevel(level);
-								consumeResult.accept(child, site.getPolygon());
+								childIndex = consumeResult.accept(child, index, level, polygon);
 							}
-							executorService.submit(createRunnable(settings, executorService, child, childrenFunction, areaFunction, site.getPolygon(), level + 1, countDown, consumeResult));
+							children[position] = null;
+							polygons[position] = null;
+							scheduler.submit(level + 1, polygon, createRunnable(settings, scheduler, child, childrenFunction, areaFunction, polygon, rootArea, childIndex, level + 1, childSeed, countDown, consumeResult));
 						}
 					}
 				}
@@ -109,10 +245,26 @@ public class VoronoiTreeMapComputation {
 		return count;
 	}
 
+	/**
+	 * counts the number of nodes on each level below the root, level 0 contains the children of the root
+	 */
+	private static <T> int[] countLevels(T rootNode, Function<T, Collection<T>> getChildren) {
+		var counts = new ArrayList<Integer>();
+		var current = new ArrayList<T>(getChildren.apply(rootNode));
+		while (!current.isEmpty()) {
+			counts.add(current.size());
+			var next = new ArrayList<T>();
+			for (var v : current)
+				next.addAll(getChildren.apply(v));
+			current = next;
+		}
+		return counts.stream().mapToInt(Integer::intValue).toArray();
+	}
+
 	/**
 	 * computes the desired area map, for each node v, the total weight in the subtree rooted at v
 	 */
-	private static <T> Map<T, Double> computeDesiredAreaMap(T rootNode, Function<T, Collection<T>> getChildren, Function<T, Double> getWeight) {
+	static <T> Map<T, Double> computeDesiredAreaMap(T rootNode, Function<T, Collection<T>> getChildren, Function<T, Double> getWeight) {
 		var nodeAreaMap = new HashMap<T, Double>();
 		computeDesiredAreaMapRec(rootNode, getChildren, getWeight, nodeAreaMap);
 		return nodeAreaMap;
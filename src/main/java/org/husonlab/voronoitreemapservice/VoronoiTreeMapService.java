@@ -23,10 +23,12 @@ import javafx.application.Platform;
 import javafx.concurrent.Service;
 import javafx.concurrent.Task;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Rectangle2D;
 
 import java.util.Collection;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 /**
  * service for computing a voronoi tree map
@@ -34,12 +36,21 @@ import java.util.function.Function;
  * Daniel Huson, 5.2023
  */
 public class VoronoiTreeMapService<T> extends Service<Integer> {
-	private Settings settings;
+	/**
+	 * default bound on the memory used by the layout cache of a service
+	 */
+	public static final long DEFAULT_LAYOUT_CACHE_BYTES = 64L * 1024 * 1024;
+
+	private final Settings settings;
+	private final LayoutCache layoutCache = new MemoryLayoutCache(DEFAULT_LAYOUT_CACHE_BYTES);
+	private final Viewport viewport = new Viewport();
 	private T rootNode;
 	private Function<T, Collection<T>> childrenFunction;
 	private Function<T, Double> weightFunction;
 	private PolygonSimple rootPolygon;
 	private BiConsumer<T, PolygonSimple> resultConsumer;
+	private boolean preview;
+	private IntConsumer levelCompleteConsumer;
 
 	/**
 	 * constructor
@@ -49,7 +60,10 @@ public class VoronoiTreeMapService<T> extends Service<Integer> {
 	}
 
 	/**
-	 * constructor
+	 * constructor. The given settings are used by each run, but are not modified. Unless the settings have a layout
+	 * cache, a run uses the in-memory layout cache of the service, so that switching back to a weighting or polygon
+	 * computed earlier does not recompute the layout. Likewise, unless the settings have a viewport, a run uses the
+	 * viewport of the service, which is empty until set
 	 *
 	 * @param settings the algorithm settings
 	 */
@@ -57,6 +71,25 @@ public class VoronoiTreeMapService<T> extends Service<Integer> {
 		this.settings = settings;
 	}
 
+	/**
+	 * gets the viewport used by the runs, either that of the settings, or that of the service
+	 */
+	private Viewport getViewport() {
+		return (settings.getViewport() != null ? settings.getViewport() : viewport);
+	}
+
+	/**
+	 * sets the part of the map that is currently shown, in the coordinates of the root polygon. This can be called
+	 * at any time, also from the JavaFX thread while the service is running. Pending node jobs are then ordered by
+	 * how much of their polygon is visible, and jobs that are not visible are run last. So each run, also the
+	 * preview, still finishes
+	 *
+	 * @param viewport the visible rectangle, or null, to compute everything
+	 */
+	public void setViewport(Rectangle2D viewport) {
+		getViewport().set(viewport);
+	}
+
 	/**
 	 * set the task to perform
 	 *
@@ -75,14 +108,53 @@ public class VoronoiTreeMapService<T> extends Service<Integer> {
 		this.resultConsumer = resultConsumer;
 	}
 
+	public boolean isPreview() {
+		return preview;
+	}
+
+	/**
+	 * if set, the tree map is first computed approximately by the raster engine, and then exactly. The result consumer
+	 * receives two polygons for each node, the exact one replaces the preview
+	 */
+	public void setPreview(boolean preview) {
+		this.preview = preview;
+	}
+
+	public IntConsumer getLevelCompleteConsumer() {
+		return levelCompleteConsumer;
+	}
+
+	/**
+	 * if set, the tree map is computed breadth-first and the polygons are delivered level by level, and this is
+	 * called in the JavaFX thread with k once all polygons of level k have been delivered. Level 0 contains the
+	 * children of the root
+	 */
+	public void setLevelCompleteConsumer(IntConsumer levelCompleteConsumer) {
+		this.levelCompleteConsumer = levelCompleteConsumer;
+	}
+
 	@Override
 	protected Task<Integer> createTask() {
 		return new Task<>() {
 			@Override
 			protected Integer call() throws Exception {
-				if (settings == null || rootNode == null || childrenFunction == null || weightFunction == null || rootPolygon == null || resultConsumer == null)
+				if (rootNode == null || childrenFunction == null || weightFunction == null || rootPolygon == null || resultConsumer == null)
 					throw new Exception("VoronoiTreeMapService: not initialized");
-				return VoronoiTreeMapComputation.run(settings, rootNode, childrenFunction, weightFunction, rootPolygon, (v, p) -> Platform.runLater(() -> resultConsumer.accept(v, p)));
+				var runSettings = new Settings(settings);
+				if (runSettings.getLayoutCache() == null)
+					runSettings.setLayoutCache(layoutCache);
+				runSettings.setViewport(getViewport());
+				if (preview) {
+					var previewSettings = new Settings(runSettings);
+					previewSettings.setEngine(Settings.Engine.Raster);
+					VoronoiTreeMapComputation.run(previewSettings, rootNode, childrenFunction, weightFunction, rootPolygon, (v, p) -> Platform.runLater(() -> resultConsumer.accept(v, p)));
+				}
+				if (levelCompleteConsumer != null) {
+					var onLevelComplete = levelCompleteConsumer;
+					return VoronoiTreeMapComputation.run(runSettings, rootNode, childrenFunction, weightFunction, rootPolygon, (v, p) -> Platform.runLater(() -> resultConsumer.accept(v, p)),
+							k -> Platform.runLater(() -> onLevelComplete.accept(k)));
+				}
+				return VoronoiTreeMapComputation.run(runSettings, rootNode, childrenFunction, weightFunction, rootPolygon, (v, p) -> Platform.runLater(() -> resultConsumer.accept(v, p)));
 			}
 		};
 	}
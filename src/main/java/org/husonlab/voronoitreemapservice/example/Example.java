@@ -20,6 +20,7 @@
 package org.husonlab.voronoitreemapservice.example;
 
 import javafx.application.Application;
+import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
 import javafx.scene.Group;
 import javafx.scene.Scene;
@@ -28,6 +29,7 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.scene.shape.Polygon;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 import kn.uni.voronoitreemap.j2d.PolygonSimple;
@@ -130,7 +132,7 @@ public class Example extends Application {
 				labelGroupMap.put(labelsGroup.getChildren().size(), newLabelGroup);
 				labelsGroup.getChildren().add(newLabelGroup);
 			}
-			var polygon = PolygonUtilities.polygon(p);
+			var polygon = PolygonUtilities.shape(p);
 			if (v.isBelow("Archaea"))
 				polygon.setFill(Color.web("#DF5C24").deriveColor(1, 1, 1, 0.1));
 			else if (v.isBelow("Bacteria"))
@@ -141,7 +143,8 @@ public class Example extends Application {
 
 			var label = new Label(v.getName());
 			label.setFont(layerToFont(level));
-			var center = PolygonUtilities.computeCenter(polygon);
+			var center = (polygon instanceof Polygon single ? PolygonUtilities.computeCenter(single)
+					: new Point2D(p.getCentroid().getX() - polygon.getTranslateX(), p.getCentroid().getY() - polygon.getTranslateY()));
 			label.setAlignment(Pos.CENTER);
 			label.translateXProperty().bind(polygon.translateXProperty());
 			label.translateYProperty().bind(polygon.translateYProperty());
@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.convexClip;
+
+import junit.framework.TestCase;
+import kn.uni.voronoitreemap.datastructure.OpenList;
+import kn.uni.voronoitreemap.diagram.PowerDiagram;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Site;
+import org.husonlab.voronoitreemapservice.PolygonUtilities;
+
+import java.util.SplittableRandom;
+
+/**
+ * tests that clipping the cells of a power diagram with a region conserves the area of the region
+ */
+public class ClipRegionTest extends TestCase {
+
+	public void testConvexRegion() {
+		checkAreaConservation(PolygonUtilities.simpleNGon(350, 7), 1);
+	}
+
+	public void testStarRegion() {
+		var star = new PolygonSimple();
+		for (var i = 0; i < 10; i++) {
+			var radius = (i % 2 == 0 ? 350 : 150);
+			star.add(radius * Math.cos(i * Math.PI / 5), radius * Math.sin(i * Math.PI / 5));
+		}
+		assertFalse(star.isConvex());
+		checkAreaConservation(star, 2);
+	}
+
+	public void testRegionWithHoles() {
+		var hole1 = PolygonUtilities.simpleNGon(60, 6);
+		hole1.translate(-120, 0);
+		var hole2 = PolygonUtilities.simpleNGon(50, 5);
+		hole2.translate(120, 40);
+		checkAreaConservation(PolygonUtilities.polygonWithHoles(PolygonUtilities.simpleNGon(350, 12), hole1, hole2), 3);
+	}
+
+	public void testClipInsideAndOutside() {
+		var region = ClipRegion.create(PolygonUtilities.simpleNGon(100, 8));
+		var clipper = new ConvexClipper();
+
+		var all = region.clip(new double[]{-200, 200, 200, -200}, new double[]{-200, -200, 200, 200}, 4, clipper);
+		assertNotNull(all);
+		assertEquals(region.getArea(), all.getArea(), 1e-9 * region.getArea());
+
+		var inner = region.clip(new double[]{-10, 10, 10, -10}, new double[]{-10, -10, 10, 10}, 4, clipper);
+		assertNotNull(inner);
+		assertEquals(400, inner.getArea(), 1e-9);
+
+		assertNull(region.clip(new double[]{300, 400, 400, 300}, new double[]{300, 300, 400, 400}, 4, clipper));
+	}
+
+	/**
+	 * computes power diagrams of random sites in the region and checks that the cells cover the region
+	 */
+	private static void checkAreaConservation(PolygonSimple polygon, long seed) {
+		var random = new SplittableRandom(seed);
+		var region = ClipRegion.create(polygon);
+		for (var n : new int[]{2, 10, 100}) {
+			var sites = new OpenList(n);
+			for (var point : polygon.getRandomInnerPoints(random, n))
+				sites.add(new Site(point.getX(), point.getY(), 100 * random.nextDouble()));
+
+			var diagram = new PowerDiagram();
+			diagram.setClipRegion(region);
+			diagram.setRandom(random.split());
+			diagram.setSites(sites);
+			diagram.computeDiagram();
+
+			var area = 0.0;
+			for (var i = 0; i < sites.size; i++) {
+				var cell = sites.array[i].getPolygon();
+				if (cell != null)
+					area += cell.getArea();
+			}
+			assertEquals("n=" + n, region.getArea(), area, 1e-9 * region.getArea());
+		}
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.core;
+
+import junit.framework.TestCase;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Site;
+
+import java.util.SplittableRandom;
+
+/**
+ * tests the iterations of the Voronoi core
+ */
+public class VoronoiCoreTest extends TestCase {
+
+	public void testIterateSimple() {
+		var core = createCore(20, 1);
+		var clipArea = core.getClipPolygon().getArea();
+
+		core.iterateSimple();
+		var firstError = core.getAreaError();
+		for (var i = 0; i < 200; i++)
+			core.iterateSimple();
+		assertTrue("error " + core.getAreaError() + " not below " + firstError, core.getAreaError() < firstError);
+
+		var area = 0.0;
+		for (var site : core.getSites()) {
+			assertNotNull(site.getPolygon());
+			area += site.getPolygon().getArea();
+		}
+		assertEquals(clipArea, area, 1e-9 * clipArea);
+	}
+
+	public void testDoIterate() {
+		var core = createCore(30, 2);
+		var clipArea = core.getClipPolygon().getArea();
+		core.doIterate();
+
+		for (var site : core.getSites()) {
+			assertNotNull(site.getPolygon());
+			assertEquals(site.getPercentage(), site.getPolygon().getArea() / clipArea, 0.05);
+		}
+	}
+
+	public void testStopConditionGivesCompleteDiagram() {
+		var core = createCore(30, 3);
+		core.setStopCondition(() -> true);
+		core.doIterate();
+		for (var site : core.getSites())
+			assertNotNull(site.getPolygon());
+	}
+
+	/**
+	 * creates a core for n sites with random positions and random area percentages in a square
+	 */
+	private static VoronoiCore createCore(int n, long seed) {
+		var random = new SplittableRandom(seed);
+		var square = new PolygonSimple(new double[]{0, 500, 500, 0}, new double[]{0, 0, 500, 500});
+		var core = new VoronoiCore(square);
+		core.setRandom(random.split());
+		var percentages = new double[n];
+		var sum = 0.0;
+		for (var i = 0; i < n; i++) {
+			percentages[i] = 1 + random.nextDouble();
+			sum += percentages[i];
+		}
+		for (var point : square.getRandomInnerPoints(random, n)) {
+			var site = new Site(point.getX(), point.getY());
+			site.setPercentage(percentages[core.getSites().size] / sum);
+			core.addSite(site);
+		}
+		return core;
+	}
+}
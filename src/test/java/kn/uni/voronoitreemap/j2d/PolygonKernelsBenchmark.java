@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * This program and the accompanying materials
+ * are made available under the terms of the GNU Public License v3.0
+ * which accompanies this distribution, and is available at
+ * http://www.gnu.org/licenses/gpl.html
+ ******************************************************************************/
+package kn.uni.voronoitreemap.j2d;
+
+import java.util.Random;
+
+/**
+ * simple benchmark comparing the polygon kernels with the previous implementation of the centroid,
+ * run from the test classes with and without --add-modules jdk.incubator.vector, on a library built with -Pvector
+ */
+public class PolygonKernelsBenchmark {
+	public static void main(String[] args) {
+		var kernels = PolygonKernels.getInstance();
+		var scalar = new ScalarPolygonKernels();
+		System.err.println("Selected kernels: " + kernels.getName());
+
+		var random = new Random(666);
+		var result = new double[3];
+		for (var n : new int[]{6, 12, 32, 128, 512}) {
+			var x = new double[n];
+			var y = new double[n];
+			for (var i = 0; i < n; i++) {
+				var radius = 100 + 10 * random.nextDouble();
+				x[i] = radius * Math.cos(2 * Math.PI * i / n);
+				y[i] = radius * Math.sin(2 * Math.PI * i / n);
+			}
+			var m = 1024;
+			var px = new double[m];
+			var py = new double[m];
+			for (var k = 0; k < m; k++) {
+				px[k] = 220 * random.nextDouble() - 110;
+				py[k] = 220 * random.nextDouble() - 110;
+			}
+			var inside = new boolean[m];
+			var repeats = Math.max(1000, 10_000_000 / n);
+
+			for (var round = 0; round < 3; round++) { // the first rounds are warm-up
+				var sum = 0.0;
+				var start = System.nanoTime();
+				for (var r = 0; r < repeats; r++) {
+					legacyCentroid(x, y, n, result);
+					sum += result[0];
+				}
+				var legacy = (System.nanoTime() - start) / (double) repeats;
+
+				start = System.nanoTime();
+				for (var r = 0; r < repeats; r++) {
+					scalar.centroid(x, y, n, result);
+					sum += result[0];
+				}
+				var scalarCentroid = (System.nanoTime() - start) / (double) repeats;
+
+				start = System.nanoTime();
+				for (var r = 0; r < repeats; r++) {
+					kernels.centroid(x, y, n, result);
+					sum += result[0];
+				}
+				var selectedCentroid = (System.nanoTime() - start) / (double) repeats;
+
+				start = System.nanoTime();
+				for (var r = 0; r < repeats; r++) {
+					sum += kernels.signedArea(x, y, n);
+				}
+				var selectedArea = (System.nanoTime() - start) / (double) repeats;
+
+				var containsRepeats = Math.max(10, repeats / m);
+				start = System.nanoTime();
+				for (var r = 0; r < containsRepeats; r++) {
+					scalar.contains(x, y, n, px, py, m, inside);
+					sum += (inside[r % m] ? 1 : 0);
+				}
+				var scalarContains = (System.nanoTime() - start) / (double) (containsRepeats * m);
+
+				start = System.nanoTime();
+				for (var r = 0; r < containsRepeats; r++) {
+					kernels.contains(x, y, n, px, py, m, inside);
+					sum += (inside[r % m] ? 1 : 0);
+				}
+				var selectedContains = (System.nanoTime() - start) / (double) (containsRepeats * m);
+
+				if (round == 2)
+					System.err.printf("n=%4d centroid: legacy %8.1f ns, scalar %8.1f ns, %s %8.1f ns; area: %8.1f ns; contains per point: scalar %7.1f ns, %s %7.1f ns (%.0f)%n",
+							n, legacy, scalarCentroid, kernels.getName(), selectedCentroid, selectedArea, scalarContains, kernels.getName(), selectedContains, sum % 10);
+			}
+		}
+	}
+
+	/**
+	 * the centroid computation as previously implemented in PolygonSimple
+	 */
+	private static void legacyCentroid(double[] x, double[] y, int length, double[] result) {
+		double area = 0;
+		for (int i = 0; i < length - 1; i++) {
+			area += (x[i] * y[i + 1] - x[i + 1] * y[i]);
+		}
+		area += (x[length - 1] * y[0] - x[0] * y[length - 1]);
+		area = Math.abs(area * 0.5);
+
+		double xv = 0;
+		double yv = 0;
+		double areaQuotient = area * 6;
+		for (int i = 0; i < length; i++) {
+			double temp = (x[i] * y[(i + 1) % length] - x[(i + 1) % length] * y[i]);
+			xv += (x[i] + x[(i + 1) % length]) * temp;
+			yv += (y[i] + y[(i + 1) % length]) * temp;
+		}
+		result[0] = xv / areaQuotient;
+		result[1] = yv / areaQuotient;
+		result[2] = area;
+	}
+}
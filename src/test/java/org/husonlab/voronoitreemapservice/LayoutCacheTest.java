@@ -0,0 +1,157 @@
+/*
+ * LayoutCacheTest.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import junit.framework.TestCase;
+import kn.uni.voronoitreemap.convexClip.ClipRegion;
+import kn.uni.voronoitreemap.convexClip.ConvexClipper;
+import kn.uni.voronoitreemap.datastructure.OpenList;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+import kn.uni.voronoitreemap.j2d.Site;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * tests the layout keys and the round trip of layouts through the caches
+ */
+public class LayoutCacheTest extends TestCase {
+	private Path directory;
+
+	@Override
+	protected void setUp() throws IOException {
+		directory = Files.createTempDirectory("layout-cache-test");
+	}
+
+	@Override
+	protected void tearDown() throws IOException {
+		try (var paths = Files.walk(directory)) {
+			for (var path : paths.sorted(Comparator.reverseOrder()).toList())
+				Files.delete(path);
+		}
+	}
+
+	public void testLayoutKey() {
+		var settings = new Settings(1);
+		var polygon = PolygonUtilities.simpleNGon(100, 6);
+		var percentages = new double[]{0.25, 0.75};
+
+		var key = LayoutKey.compute(percentages, polygon, settings, 7);
+		assertEquals(key, LayoutKey.compute(percentages.clone(), new PolygonSimple(polygon), new Settings(settings), 7));
+		assertEquals(key.hashCode(), LayoutKey.compute(percentages, polygon, settings, 7).hashCode());
+
+		assertFalse(key.equals(LayoutKey.compute(percentages, polygon, settings, 8)));
+		assertFalse(key.equals(LayoutKey.compute(new double[]{0.75, 0.25}, polygon, settings, 7)));
+		assertFalse(key.equals(LayoutKey.compute(percentages, PolygonUtilities.simpleNGon(101, 6), settings, 7)));
+		var other = new Settings(settings);
+		other.errorThreshold /= 2;
+		assertFalse(key.equals(LayoutKey.compute(percentages, polygon, other, 7)));
+	}
+
+	public void testDiskRoundTrip() throws IOException {
+		var layout = createLayout();
+		var key = new LayoutKey(1, 2);
+
+		var cache = new DiskLayoutCache(directory, 1_000_000);
+		assertNull(cache.get(key));
+		cache.put(key, layout);
+		assertEquals(1, cache.size());
+		assertLayoutEquals(layout, cache.get(key));
+
+		// a new cache on the same directory finds the layout written before
+		var reopened = new DiskLayoutCache(directory, 1_000_000);
+		assertLayoutEquals(layout, reopened.get(key));
+		assertNull(reopened.get(new LayoutKey(2, 1)));
+	}
+
+	public void testMemoryRoundTrip() throws IOException {
+		var layout = createLayout();
+		var key = new LayoutKey(3, 4);
+		var backing = new DiskLayoutCache(directory, 1_000_000);
+
+		var cache = new MemoryLayoutCache(1_000_000, backing);
+		cache.put(key, layout);
+		assertLayoutEquals(layout, cache.get(key));
+
+		// the backing cache is read when the memory cache does not have the layout
+		assertLayoutEquals(layout, new MemoryLayoutCache(1_000_000, backing).get(key));
+	}
+
+	public void testCreateSites() {
+		var layout = createLayout();
+		var sites = layout.createSites(List.of("a", "b", "c"), new double[]{0.2, 0.3, 0.5});
+		assertEquals(3, sites.size);
+		for (var i = 0; i < sites.size; i++) {
+			var site = sites.array[i];
+			assertEquals(layout.getX(i), site.getX());
+			assertEquals(layout.getY(i), site.getY());
+			assertEquals(layout.getWeight(i), site.getWeight());
+			assertEquals(layout.getPolygon(i).getArea(), site.getPolygon().getArea());
+		}
+		assertEquals("b", sites.array[1].getData());
+		assertEquals(0.5, sites.array[2].getPercentage());
+	}
+
+	/**
+	 * a layout of three sites, the last of which has a polygon of two parts
+	 */
+	private static NodeLayout createLayout() {
+		var sites = new OpenList(3);
+		var square = new PolygonSimple(new double[]{0, 10, 10, 0}, new double[]{0, 0, 10, 10});
+		var triangle = new PolygonSimple(new double[]{10, 20, 10}, new double[]{0, 0, 10});
+		// a strip across two tips of a star
+		var star = new PolygonSimple();
+		for (var i = 0; i < 10; i++) {
+			var radius = (i % 2 == 0 ? 350 : 150);
+			star.add(radius * Math.cos(i * Math.PI / 5), radius * Math.sin(i * Math.PI / 5));
+		}
+		var tips = ClipRegion.create(star).clip(new double[]{-400, 400, 400, -400}, new double[]{160, 160, 400, 400}, 4, new ConvexClipper());
+		assertEquals(2, tips.getNumParts());
+		var polygons = new PolygonSimple[]{square, triangle, tips};
+		for (var i = 0; i < polygons.length; i++) {
+			var centroid = polygons[i].getCentroid();
+			var site = new Site(centroid.getX(), centroid.getY(), 1.5 * i);
+			site.setPolygon(polygons[i]);
+			sites.add(site);
+		}
+		return NodeLayout.create(sites);
+	}
+
+	private static void assertLayoutEquals(NodeLayout expected, NodeLayout actual) {
+		assertNotNull(actual);
+		assertEquals(expected.size(), actual.size());
+		for (var i = 0; i < expected.size(); i++) {
+			assertEquals(expected.getX(i), actual.getX(i));
+			assertEquals(expected.getY(i), actual.getY(i));
+			assertEquals(expected.getWeight(i), actual.getWeight(i));
+			var a = expected.getPolygon(i);
+			var b = actual.getPolygon(i);
+			assertEquals(a.getNumPoints(), b.getNumPoints());
+			assertEquals(a.getNumParts(), b.getNumParts());
+			for (var k = 0; k < a.getNumPoints(); k++) {
+				assertEquals(a.getXPoints()[k], b.getXPoints()[k]);
+				assertEquals(a.getYPoints()[k], b.getYPoints()[k]);
+			}
+		}
+	}
+}
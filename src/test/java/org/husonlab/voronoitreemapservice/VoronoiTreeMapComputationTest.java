@@ -0,0 +1,130 @@
+/*
+ * VoronoiTreeMapComputationTest.java Copyright (C) 2023 Daniel H. Huson
+ *
+ * (Some files contain contributions from other authors, who are then mentioned separately.)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.husonlab.voronoitreemapservice;
+
+import junit.framework.TestCase;
+import kn.uni.voronoitreemap.j2d.PolygonSimple;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * tests that tree maps cover their polygons and do not depend on the number of threads
+ */
+public class VoronoiTreeMapComputationTest extends TestCase {
+
+	public void testDeterministicAcrossThreads() {
+		var root = createTree(new Random(42), 3, 8);
+		var polygon = PolygonUtilities.simpleNGon(350, 7);
+
+		var single = compute(new Settings(1), root, polygon);
+		var multi = compute(new Settings(4), root, polygon);
+		assertPolygonsEqual(single, multi);
+		checkCoverage(root, polygon, single);
+	}
+
+	public void testDeterministicAcrossThreadsRaster() {
+		var root = createTree(new Random(7), 2, 10);
+		var polygon = PolygonUtilities.simpleNGon(350, 7);
+
+		var settings = new Settings(1);
+		settings.setEngine(Settings.Engine.Raster);
+		var single = compute(settings, root, polygon);
+		settings = new Settings(4);
+		settings.setEngine(Settings.Engine.Raster);
+		var multi = compute(settings, root, polygon);
+		assertPolygonsEqual(single, multi);
+		checkCoverage(root, polygon, single);
+	}
+
+	public void testDeterministicAcrossThreadsMultiStart() {
+		var root = createTree(new Random(11), 2, 12);
+		var polygon = PolygonUtilities.simpleNGon(350, 7);
+
+		var settings = new Settings(1);
+		settings.setMultiStarts(3);
+		settings.setMultiStartMinChildren(2);
+		var single = compute(settings, root, polygon);
+		settings = new Settings(settings);
+		settings.setNumberOfThreads(4);
+		var multi = compute(settings, root, polygon);
+		assertPolygonsEqual(single, multi);
+		checkCoverage(root, polygon, single);
+	}
+
+	private static Map<Node, PolygonSimple> compute(Settings settings, Node root, PolygonSimple polygon) {
+		var result = new ConcurrentHashMap<Node, PolygonSimple>();
+		var count = VoronoiTreeMapComputation.run(settings, root, node -> node.children, node -> node.weight, polygon, result::put);
+		assertEquals(result.size() + 1, count);
+		return result;
+	}
+
+	private static void assertPolygonsEqual(Map<Node, PolygonSimple> expected, Map<Node, PolygonSimple> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (var entry : expected.entrySet()) {
+			var a = entry.getValue();
+			var b = actual.get(entry.getKey());
+			assertNotNull(b);
+			assertEquals(a.getNumPoints(), b.getNumPoints());
+			for (var i = 0; i < a.getNumPoints(); i++) {
+				assertEquals(a.getXPoints()[i], b.getXPoints()[i]);
+				assertEquals(a.getYPoints()[i], b.getYPoints()[i]);
+			}
+		}
+	}
+
+	/**
+	 * checks that the polygons of the children of each node cover the polygon of the node
+	 */
+	private static void checkCoverage(Node root, PolygonSimple rootPolygon, Map<Node, PolygonSimple> result) {
+		var stack = new ArrayList<Node>(List.of(root));
+		while (!stack.isEmpty()) {
+			var node = stack.remove(stack.size() - 1);
+			if (node.children.isEmpty())
+				continue;
+			var area = (node == root ? rootPolygon : result.get(node)).getArea();
+			var sum = 0.0;
+			for (var child : node.children) {
+				sum += result.get(child).getArea();
+				stack.add(child);
+			}
+			assertEquals(area, sum, 1e-9 * area);
+		}
+	}
+
+	private static Node createTree(Random random, int depth, int maxFanOut) {
+		var node = new Node();
+		if (depth > 0) {
+			var k = 1 + random.nextInt(maxFanOut);
+			for (var i = 0; i < k; i++)
+				node.children.add(createTree(random, depth - 1, maxFanOut));
+		} else
+			node.weight = 1 + random.nextInt(100);
+		return node;
+	}
+
+	private static class Node {
+		private final List<Node> children = new ArrayList<>();
+		private double weight;
+	}
+}